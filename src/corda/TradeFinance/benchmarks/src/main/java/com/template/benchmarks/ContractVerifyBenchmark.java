@@ -0,0 +1,38 @@
+package com.template.benchmarks;
+
+import com.template.contracts.TradeFinanceContract;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures TradeFinanceContract.verify, which every node runs for every transaction it signs or records. The
+ * transactions are built once per trial, so only the contract rules themselves are measured. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractVerifyBenchmark {
+    @Param
+    public OrderFixtures.CommandType command;
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    private final TradeFinanceContract contract = new TradeFinanceContract();
+    private LedgerTransaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.transaction = OrderFixtures.transaction(this.command, this.batchSize);
+        // Fail early instead of measuring the cost of an exception.
+        this.contract.verify(this.transaction);
+    }
+
+    @Benchmark
+    public void verify() {
+        this.contract.verify(this.transaction);
+    }
+}
@@ -0,0 +1,144 @@
+package com.template.benchmarks;
+
+import com.template.contracts.TradeFinanceContract;
+import com.template.states.OrderState;
+import net.corda.core.contracts.*;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.internal.SerializationEnvironment;
+import net.corda.core.serialization.internal.SerializationEnvironmentKt;
+import net.corda.core.transactions.LedgerTransaction;
+import net.corda.coretesting.internal.InternalSerializationTestHelpersKt;
+import net.corda.testing.core.TestIdentity;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/* Builds the orders and ledger transactions the benchmarks run against. Every transaction moves batchSize orders with
+ * a single command, in the same way as the flows of the workflows module do. */
+public class OrderFixtures {
+    public static final TestIdentity SELLER = new TestIdentity(new CordaX500Name("Seller", "Berlin", "DE"));
+    public static final TestIdentity BUYER = new TestIdentity(new CordaX500Name("Buyer", "Vienna", "AT"));
+    public static final TestIdentity FREIGHT_COMPANY = new TestIdentity(new CordaX500Name("Freight Company", "New York", "US"));
+    public static final TestIdentity NOTARY = new TestIdentity(new CordaX500Name("Notary", "London", "GB"));
+
+    // The command types of the TradeFinanceContract, each with the order state it expects as input.
+    public enum CommandType {
+        CREATE(null),
+        CONFIRM(OrderState.State.CREATED),
+        SHIP(OrderState.State.CONFIRMED),
+        SIGN(OrderState.State.SHIPPED),
+        CANCEL(OrderState.State.CREATED),
+        CHECK_DATE(OrderState.State.CONFIRMED);
+
+        private final OrderState.State inputState;
+
+        CommandType(OrderState.State inputState) {
+            this.inputState = inputState;
+        }
+    }
+
+    // Installs the serialization environment of a node. It can only be installed once per JVM, so it is shared.
+    public static synchronized SerializationEnvironment serializationEnvironment() {
+        SerializationEnvironment environment = SerializationEnvironmentKt.getNodeSerializationEnv();
+        if (environment == null) {
+            environment = InternalSerializationTestHelpersKt.createTestSerializationEnv();
+            SerializationEnvironmentKt.setNodeSerializationEnv(environment);
+        }
+        return environment;
+    }
+
+    public static OrderState order(String orderId, OrderState.State state, Instant latestDeliveryDate) {
+        OrderState order = new OrderState(SELLER.getParty(), BUYER.getParty(), orderId, 100, 2.0, Amount.parseCurrency("10 EUR"),
+                Amount.parseCurrency("2 EUR"), "Karlsplatz 13, 1040 Wien", latestDeliveryDate);
+        order.setOrderState(state);
+        if (state == OrderState.State.SHIPPED) {
+            order.setFreightCompany(FREIGHT_COMPANY.getParty());
+            order.setTrackingCode("TRACK-" + orderId);
+        }
+        return order;
+    }
+
+    public static List<OrderState> orders(int batchSize, OrderState.State state) {
+        List<OrderState> orders = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            orders.add(order(String.valueOf(i), state, Instant.now().plus(1, ChronoUnit.DAYS)));
+        }
+        return orders;
+    }
+
+    public static LedgerTransaction transaction(CommandType type, int batchSize) {
+        switch (type) {
+            case CREATE:
+                return transaction(Collections.emptyList(), orders(batchSize, OrderState.State.CREATED),
+                        new TradeFinanceContract.Commands.Create(SELLER.getParty()));
+            case CONFIRM:
+                return transition(type, batchSize, OrderState.State.CONFIRMED, null,
+                        new TradeFinanceContract.Commands.Confirm(BUYER.getParty()));
+            case SHIP:
+                return transition(type, batchSize, OrderState.State.SHIPPED, FREIGHT_COMPANY.getParty(),
+                        new TradeFinanceContract.Commands.Ship(SELLER.getParty()));
+            case SIGN:
+                return transition(type, batchSize, OrderState.State.SHIPPED, FREIGHT_COMPANY.getParty(),
+                        new TradeFinanceContract.Commands.Sign(BUYER.getParty()));
+            case CANCEL:
+                return transition(type, batchSize, OrderState.State.CANCELLED, null,
+                        new TradeFinanceContract.Commands.Cancel(SELLER.getParty()));
+            case CHECK_DATE:
+                List<OrderState> overdue = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    overdue.add(order(String.valueOf(i), type.inputState, Instant.now().minus(1, ChronoUnit.DAYS)));
+                }
+                return transaction(overdue, moved(overdue, OrderState.State.PASSED, null),
+                        new TradeFinanceContract.Commands.CheckDate(BUYER.getParty()));
+            default:
+                throw new IllegalArgumentException("Unknown command type " + type + ".");
+        }
+    }
+
+    private static LedgerTransaction transition(CommandType type, int batchSize, OrderState.State outputState, Party freightCompany, TradeFinanceContract.Commands command) {
+        List<OrderState> inputs = orders(batchSize, type.inputState);
+        return transaction(inputs, moved(inputs, outputState, freightCompany), command);
+    }
+
+    private static List<OrderState> moved(List<OrderState> inputs, OrderState.State state, Party freightCompany) {
+        return map(inputs, input -> {
+            OrderState output = input.copy();
+            output.setOrderState(state);
+            if (freightCompany != null) {
+                output.setFreightCompany(freightCompany);
+            }
+            return output;
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static LedgerTransaction transaction(List<OrderState> inputs, List<OrderState> outputs, TradeFinanceContract.Commands command) {
+        SecureHash inputTxId = SecureHash.randomSHA256();
+        List<StateAndRef<OrderState>> inputRefs = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            inputRefs.add(new StateAndRef<>(transactionState(inputs.get(i)), new StateRef(inputTxId, i)));
+        }
+        List<PublicKey> signers = Arrays.asList(SELLER.getPublicKey(), BUYER.getPublicKey(), FREIGHT_COMPANY.getPublicKey());
+        List<CommandWithParties<CommandData>> commands = Collections.singletonList(new CommandWithParties<>(signers, Collections.emptyList(), command));
+        return new LedgerTransaction(inputRefs, map(outputs, OrderFixtures::transactionState), commands, Collections.emptyList(),
+                SecureHash.randomSHA256(), NOTARY.getParty(), null, new PrivacySalt());
+    }
+
+    private static TransactionState<OrderState> transactionState(OrderState order) {
+        return new TransactionState<>(order, TradeFinanceContract.ID, NOTARY.getParty());
+    }
+
+    private static <T, R> List<R> map(List<T> list, Function<T, R> mapper) {
+        List<R> result = new ArrayList<>(list.size());
+        list.forEach(element -> result.add(mapper.apply(element)));
+        return result;
+    }
+}
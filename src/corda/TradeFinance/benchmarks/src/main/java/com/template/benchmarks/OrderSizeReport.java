@@ -0,0 +1,107 @@
+package com.template.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.template.contracts.TradeFinanceContract;
+import com.template.states.OrderState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.serialization.SerializationContext;
+import net.corda.core.serialization.SerializationFactory;
+import net.corda.core.serialization.internal.SerializationEnvironment;
+import net.corda.core.transactions.MissingContractAttachments;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.node.MockServices;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/* Reports the serialized size of an order and of the backchain of a delivered order, i.e. the five transactions from
+ * its creation to the second arrival signature, which every node has to resolve before it accepts the order. The sizes
+ * are deterministic, so they are measured once instead of with JMH. The report is printed and, if a path is given,
+ * written to that file as JSON. */
+public class OrderSizeReport {
+    private final SerializationFactory factory;
+    private final SerializationContext context;
+    private final MockServices services = new MockServices(ImmutableList.of("com.template.contracts"), OrderFixtures.SELLER,
+            OrderFixtures.BUYER, OrderFixtures.FREIGHT_COMPANY);
+
+    private OrderSizeReport(SerializationEnvironment environment) {
+        this.factory = environment.getSerializationFactory();
+        this.context = environment.getP2pContext();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, Integer> report = new OrderSizeReport(OrderFixtures.serializationEnvironment()).measure();
+        String json = report.entrySet().stream()
+                .map(entry -> "  \"" + entry.getKey() + "\": " + entry.getValue())
+                .collect(Collectors.joining(",\n", "{\n", "\n}\n"));
+        System.out.print(json);
+        if (args.length > 0) {
+            Path path = Paths.get(args[0]);
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private Map<String, Integer> measure() {
+        Instant latestDeliveryDate = Instant.now().plus(1, ChronoUnit.DAYS);
+        Map<String, Integer> report = new LinkedHashMap<>();
+        report.put("bytesPerCreatedState", size(OrderFixtures.order("1", OrderState.State.CREATED, latestDeliveryDate)));
+        report.put("bytesPerShippedState", size(OrderFixtures.order("1", OrderState.State.SHIPPED, latestDeliveryDate)));
+
+        WireTransaction create = transaction(null, OrderFixtures.order("1", OrderState.State.CREATED, latestDeliveryDate),
+                new TradeFinanceContract.Commands.Create(OrderFixtures.SELLER.getParty()));
+        WireTransaction confirm = transition(create, order -> order.setOrderState(OrderState.State.CONFIRMED),
+                new TradeFinanceContract.Commands.Confirm(OrderFixtures.BUYER.getParty()));
+        WireTransaction ship = transition(confirm, order -> {
+            order.setOrderState(OrderState.State.SHIPPED);
+            order.setFreightCompany(OrderFixtures.FREIGHT_COMPANY.getParty());
+            order.setTrackingCode("TRACK-1");
+        }, new TradeFinanceContract.Commands.Ship(OrderFixtures.SELLER.getParty()));
+        WireTransaction buyerSign = transition(ship, order -> order.setBuyerSigned(true),
+                new TradeFinanceContract.Commands.Sign(OrderFixtures.BUYER.getParty()));
+        WireTransaction freightSign = transition(buyerSign, order -> {
+            order.setFreightSigned(true);
+            order.setOrderState(OrderState.State.DELIVERED);
+        }, new TradeFinanceContract.Commands.Sign(OrderFixtures.FREIGHT_COMPANY.getParty()));
+
+        report.put("bytesPerBackchain", ImmutableList.of(create, confirm, ship, buyerSign, freightSign).stream().mapToInt(this::size).sum());
+        report.put("transactionsPerBackchain", 5);
+        return report;
+    }
+
+    private WireTransaction transition(WireTransaction previous, Consumer<OrderState> change, TradeFinanceContract.Commands command) {
+        StateAndRef<OrderState> input = previous.outRef(0);
+        OrderState output = input.getState().getData().copy();
+        change.accept(output);
+        return transaction(input, output, command);
+    }
+
+    private WireTransaction transaction(StateAndRef<OrderState> input, OrderState output, TradeFinanceContract.Commands command) {
+        TransactionBuilder builder = new TransactionBuilder(OrderFixtures.NOTARY.getParty());
+        if (input != null) {
+            builder.addInputState(input);
+        }
+        builder.addOutputState(output, TradeFinanceContract.ID);
+        builder.addCommand(command, output.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
+        try {
+            return builder.toWireTransaction(this.services);
+        } catch (MissingContractAttachments e) {
+            throw new IllegalStateException("The contracts CorDapp is not on the classpath.", e);
+        }
+    }
+
+    private int size(Object object) {
+        return this.factory.serialize(object, this.context).getSize();
+    }
+}
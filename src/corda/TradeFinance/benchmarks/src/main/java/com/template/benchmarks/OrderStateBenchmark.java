@@ -0,0 +1,40 @@
+package com.template.benchmarks;
+
+import com.template.states.OrderState;
+import net.corda.core.identity.AbstractParty;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Measures the OrderState methods that every flow and the contract call for every order of a transaction. A shipped
+ * order has a freight company, which adds a participant. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderStateBenchmark {
+    @Param({"CREATED", "SHIPPED"})
+    public OrderState.State orderState;
+
+    private OrderState order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.order = OrderFixtures.order("1", this.orderState, Instant.now().plus(1, ChronoUnit.DAYS));
+    }
+
+    @Benchmark
+    public OrderState copy() {
+        return this.order.copy();
+    }
+
+    @Benchmark
+    public List<AbstractParty> getParticipants() {
+        return this.order.getParticipants();
+    }
+}
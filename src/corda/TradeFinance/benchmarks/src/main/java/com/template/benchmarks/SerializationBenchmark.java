@@ -0,0 +1,57 @@
+package com.template.benchmarks;
+
+import com.template.states.OrderState;
+import net.corda.core.serialization.SerializationContext;
+import net.corda.core.serialization.SerializationFactory;
+import net.corda.core.serialization.SerializedBytes;
+import net.corda.core.serialization.internal.SerializationEnvironment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Measures the AMQP serialization of orders, which is paid whenever an order is sent to another node, checkpointed
+ * or stored in the vault. Each invocation (de)serializes batchSize orders one by one. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    private SerializationFactory factory;
+    private SerializationContext context;
+    private List<OrderState> orders;
+    private List<SerializedBytes<OrderState>> serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SerializationEnvironment environment = OrderFixtures.serializationEnvironment();
+        this.factory = environment.getSerializationFactory();
+        this.context = environment.getP2pContext();
+        this.orders = OrderFixtures.orders(this.batchSize, OrderState.State.CREATED);
+        this.serialized = new ArrayList<>(this.batchSize);
+        for (OrderState order : this.orders) {
+            this.serialized.add(this.factory.serialize(order, this.context));
+        }
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) {
+        for (OrderState order : this.orders) {
+            blackhole.consume(this.factory.serialize(order, this.context));
+        }
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) {
+        for (SerializedBytes<OrderState> bytes : this.serialized) {
+            blackhole.consume(this.factory.deserialize(bytes, OrderState.class, this.context));
+        }
+    }
+}
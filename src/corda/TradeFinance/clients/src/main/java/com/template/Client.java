@@ -1,5 +1,6 @@
 package com.template;
 
+import com.template.loadgen.LoadGenerator;
 import net.corda.client.rpc.CordaRPCClient;
 import net.corda.client.rpc.CordaRPCConnection;
 import net.corda.core.identity.CordaX500Name;
@@ -9,6 +10,7 @@ import net.corda.core.utilities.NetworkHostAndPort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static net.corda.core.utilities.NetworkHostAndPort.parse;
@@ -16,12 +18,18 @@ import static net.corda.core.utilities.NetworkHostAndPort.parse;
 /**
  * Connects to a Corda node via RPC and performs RPC operations on the node.
  *
- * The RPC connection is configured using command line arguments.
+ * The RPC connection is configured using command line arguments. If the first argument is "load", the remaining
+ * arguments are passed to the {@link LoadGenerator} instead.
  */
 public class Client {
     private static final Logger logger = LoggerFactory.getLogger(Client.class);
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("load")) {
+            LoadGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         // Create an RPC connection to the node.
         if (args.length != 3) throw new IllegalArgumentException("Usage: Client <node address> <rpc username> <rpc password>");
         final NetworkHostAndPort nodeAddress = parse(args[0]);
@@ -0,0 +1,86 @@
+package com.template.loadgen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the latencies of the flows started by the load generator, per flow type, and reports their throughput and
+ * latency percentiles.
+ *
+ * The latencies are kept in full instead of in a histogram, which is fine for the number of flows a single load run
+ * starts and gives exact percentiles.
+ */
+public class LatencyStats {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Recorder> recorders = new ConcurrentSkipListMap<>();
+
+    public void record(String flowType, long latencyNanos) {
+        recorder(flowType).record(latencyNanos);
+    }
+
+    public void recordFailure(String flowType) {
+        recorder(flowType).recordFailure();
+    }
+
+    private Recorder recorder(String flowType) {
+        return recorders.computeIfAbsent(flowType, type -> new Recorder());
+    }
+
+    /**
+     * Formats one line per flow type. The throughput is relative to the given duration of the whole run, so that the
+     * values of all flow types add up.
+     */
+    public List<String> report(long durationNanos) {
+        double seconds = durationNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%-14s %8s %7s %10s %9s %9s %9s %9s %9s %9s",
+                "flow", "count", "failed", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        recorders.forEach((flowType, recorder) -> lines.add(recorder.report(flowType, seconds)));
+        return lines;
+    }
+
+    private static class Recorder {
+        private final List<Long> latencies = new ArrayList<>();
+        private int failures;
+
+        synchronized void record(long latencyNanos) {
+            latencies.add(latencyNanos);
+        }
+
+        synchronized void recordFailure() {
+            failures++;
+        }
+
+        synchronized String report(String flowType, double seconds) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-14s %8d %7d %10.2f %9.1f",
+                    flowType, sorted.size(), failures, sorted.size() / seconds, millis(sorted.stream().mapToLong(Long::longValue).average().orElse(0))));
+            for (double percentile : PERCENTILES) {
+                line.append(String.format(Locale.ROOT, " %9.1f", millis(percentile(sorted, percentile))));
+            }
+            line.append(String.format(Locale.ROOT, " %9.1f", millis(sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1))));
+            return line.toString();
+        }
+
+        // Nearest-rank percentile of the sorted latencies.
+        private static long percentile(List<Long> sorted, double percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            // The epsilon keeps rounding errors of the percentile from moving the rank up by one.
+            int rank = (int) Math.ceil(percentile / 100 * sorted.size() - 1e-9);
+            return sorted.get(Math.max(rank, 1) - 1);
+        }
+
+        private static double millis(double nanos) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.template.loadgen;
+
+import com.template.flows.AcknowledgeArrival;
+import com.template.flows.ConfirmOrder;
+import com.template.flows.CreateOrder;
+import com.template.flows.ShipOrder;
+import com.template.flows.SignArrival;
+import com.template.flows.SignArrivalJointly;
+import net.corda.client.rpc.CordaRPCClient;
+import net.corda.client.rpc.CordaRPCConnection;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the full order lifecycle against the seller, buyer and freight company nodes via RPC: the seller creates an
+ * order, the buyer confirms it, the seller ships it and finally the buyer and the freight company sign its arrival.
+ * The arrival is either signed in two transactions, or, with --arrival joint, acknowledged by the freight company and
+ * signed for both by the buyer in a single transaction.
+ *
+ * At most concurrency lifecycles are in flight at the same time, and if a rate is given, new lifecycles are started at
+ * most at that rate per second. The throughput and the latency percentiles of every flow type are reported at the end.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final String USAGE = "Usage: Client load <seller address> <buyer address> <freight address> <rpc username> <rpc password> "
+            + "[--orders <number of orders>] [--concurrency <lifecycles in flight>] [--rate <lifecycles per second>] [--arrival <separate|joint>]";
+
+    //private variables
+    private final CordaRPCOps seller;
+    private final CordaRPCOps buyer;
+    private final CordaRPCOps freightCompany;
+    private final String buyerName;
+    private final String freightCompanyName;
+    private final int orders;
+    private final int concurrency;
+    private final double rate;
+    private final boolean jointArrival;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final LatencyStats stats = new LatencyStats();
+    private final ExecutorService executor;
+
+    //public constructor
+    public LoadGenerator(CordaRPCOps seller, CordaRPCOps buyer, CordaRPCOps freightCompany, int orders, int concurrency, double rate, boolean jointArrival) {
+        if (orders < 1 || concurrency < 1 || rate < 0) {
+            throw new IllegalArgumentException("The number of orders and the concurrency must be positive and the rate must not be negative.");
+        }
+        this.seller = seller;
+        this.buyer = buyer;
+        this.freightCompany = freightCompany;
+        this.buyerName = buyer.nodeInfo().getLegalIdentities().get(0).getName().getOrganisation();
+        this.freightCompanyName = freightCompany.nodeInfo().getLegalIdentities().get(0).getName().getOrganisation();
+        this.orders = orders;
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.jointArrival = jointArrival;
+        // The RPC calls that start the flows block until the node acknowledged them, so every lifecycle needs a thread.
+        this.executor = Executors.newFixedThreadPool(concurrency);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 5) throw new IllegalArgumentException(USAGE);
+        int orders = 100;
+        int concurrency = 10;
+        double rate = 0;
+        boolean jointArrival = false;
+        for (int i = 5; i < args.length; i += 2) {
+            if (i + 1 >= args.length) throw new IllegalArgumentException(USAGE);
+            switch (args[i]) {
+                case "--orders":
+                    orders = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--arrival":
+                    if (!args[i + 1].equals("separate") && !args[i + 1].equals("joint")) throw new IllegalArgumentException(USAGE);
+                    jointArrival = args[i + 1].equals("joint");
+                    break;
+                default:
+                    throw new IllegalArgumentException(USAGE);
+            }
+        }
+
+        List<CordaRPCConnection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                connections.add(new CordaRPCClient(NetworkHostAndPort.parse(args[i])).start(args[3], args[4]));
+            }
+            LoadGenerator generator = new LoadGenerator(connections.get(0).getProxy(), connections.get(1).getProxy(),
+                    connections.get(2).getProxy(), orders, concurrency, rate, jointArrival);
+            generator.run().forEach(System.out::println);
+        } finally {
+            connections.forEach(CordaRPCConnection::notifyServerAndClose);
+        }
+    }
+
+    /**
+     * Runs all lifecycles and returns the report. Lifecycles that fail are counted for the flow that failed and are
+     * not continued.
+     */
+    public List<String> run() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(this.concurrency);
+        AtomicInteger completed = new AtomicInteger();
+        List<CompletableFuture<Void>> lifecycles = new ArrayList<>(this.orders);
+        logger.info("Starting {} order lifecycles with a concurrency of {} and a rate of {}/s.", this.orders, this.concurrency, this.rate > 0 ? this.rate : "unlimited");
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < this.orders; i++) {
+                if (this.rate > 0) {
+                    long due = start + (long) (i * TimeUnit.SECONDS.toNanos(1) / this.rate);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                inFlight.acquire();
+                lifecycles.add(lifecycle(this.runId + "-" + i).whenComplete((result, error) -> {
+                    inFlight.release();
+                    int done = completed.incrementAndGet();
+                    if (done % 100 == 0) {
+                        logger.info("{} of {} order lifecycles done.", done, this.orders);
+                    }
+                }));
+            }
+            CompletableFuture.allOf(lifecycles.toArray(new CompletableFuture<?>[0])).exceptionally(error -> null).join();
+        } finally {
+            this.executor.shutdown();
+        }
+        long duration = System.nanoTime() - start;
+        long failed = lifecycles.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "%d order lifecycles in %.1f s (%.2f completed lifecycles/s), %d failed.",
+                this.orders, duration / 1e9, (this.orders - failed) / (duration / 1e9), failed));
+        report.addAll(this.stats.report(duration));
+        return report;
+    }
+
+    private CompletableFuture<Void> lifecycle(String orderId) {
+        CompletableFuture<Object> shipped = call(this.seller, "CreateOrder", CreateOrder.class, this.buyerName, orderId, 1, 1.0, "100 EUR", "5 EUR", "Karlsplatz 13, 1040 Wien", "2099-12-31")
+                .thenCompose(result -> call(this.buyer, "ConfirmOrder", ConfirmOrder.class, orderId))
+                .thenCompose(result -> call(this.seller, "ShipOrder", ShipOrder.class, orderId, this.freightCompanyName, "TRACK-" + orderId));
+        if (this.jointArrival) {
+            return shipped.thenCompose(result -> call(this.freightCompany, "AcknowledgeArrival", AcknowledgeArrival.class, orderId))
+                    .thenCompose(result -> call(this.buyer, "SignArrivalJointly", SignArrivalJointly.class, orderId))
+                    .thenApply(result -> null);
+        }
+        return shipped.thenCompose(result -> call(this.buyer, "SignArrival", SignArrival.class, orderId))
+                .thenCompose(result -> call(this.freightCompany, "SignArrival(F)", SignArrival.class, orderId))
+                .thenApply(result -> null);
+    }
+
+    // Starts the flow on the given node and records its latency, from the start request until its result arrived.
+    private CompletableFuture<Object> call(CordaRPCOps node, String flowType, Class<? extends FlowLogic<?>> flowClass, Object... args) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                node.startFlowDynamic(flowClass, args).getReturnValue().toCompletableFuture().whenComplete((value, error) -> {
+                    if (error == null) {
+                        this.stats.record(flowType, System.nanoTime() - start);
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(error);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.whenComplete((value, error) -> {
+            if (error != null) {
+                this.stats.recordFailure(flowType);
+                logger.warn("{} failed: {}", flowType, error.getMessage());
+            }
+        });
+    }
+}
@@ -1,27 +1,259 @@
 package com.template.webserver;
 
+import com.template.flows.*;
+import com.template.states.OrderState;
+import net.corda.client.rpc.RPCException;
+import net.corda.core.CordaThrowable;
+import net.corda.core.flows.FlowLogic;
 import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.FlowHandle;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Sort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Define your API endpoints here.
+ *
+ * The order endpoints start their flow and return immediately. The response is completed once the flow has finished,
+ * so that no servlet thread waits for the signatures and the notarisation. If the flow takes longer than
+ * config.flow.timeout milliseconds, 202 is returned with the ID of the still running flow.
  */
 @RestController
 @RequestMapping("/") // The paths for HTTP requests are relative to this base path.
 public class Controller {
+    private final NodeRPCConnection rpc;
     private final CordaRPCOps proxy;
+    private final OrderUpdateStream updates;
+    private final OrderReadModel readModel;
+    private final OrderListing listing;
     private final static Logger logger = LoggerFactory.getLogger(Controller.class);
 
-    public Controller(NodeRPCConnection rpc) {
+    // The largest page of orders a single request can ask for.
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // How long a request waits for the result of its flow.
+    @Value("${config.flow.timeout:120000}")
+    private long flowTimeout;
+
+    public Controller(NodeRPCConnection rpc, OrderUpdateStream updates, OrderReadModel readModel, OrderListing listing) {
+        this.rpc = rpc;
         this.proxy = rpc.proxy;
+        this.updates = updates;
+        this.readModel = readModel;
+        this.listing = listing;
     }
 
     @GetMapping(value = "/templateendpoint", produces = "text/plain")
     private String templateendpoint() {
         return "Define an endpoint here.";
     }
-}
\ No newline at end of file
+
+    @GetMapping(value = "/health", produces = "text/plain")
+    public ResponseEntity<String> health() {
+        int healthy = rpc.healthyConnections();
+        return ResponseEntity.status(healthy > 0 ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(healthy + " of " + rpc.size() + " RPC connections are healthy.");
+    }
+
+    /* Serves the flow metrics of the node for a Prometheus scrape. */
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4")
+    public DeferredResult<ResponseEntity<String>> metrics() {
+        return startFlow(FlowMetricsReport.class);
+    }
+
+    /* Streams the new versions of the orders as Server-Sent Events of type "order". The optional parameters restrict
+     * the stream to a single order, a buyer or an order state. */
+    @GetMapping(value = "/orders/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter orderUpdates(@RequestParam(required = false) String orderId, @RequestParam(required = false) String buyer,
+                                   @RequestParam(required = false) OrderState.State state) {
+        return updates.subscribe(orderId, buyer, state);
+    }
+
+    /* Lists the orders that match all given filters as a JSON array, sorted by a column of the order schema. Without a
+     * page, all matching orders are streamed page by page, which is meant for exports. The total number of matching
+     * orders is returned in the X-Total-Count header. Pages start at 1 and hold at most MAX_PAGE_SIZE orders. */
+    @GetMapping(value = "/orders", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> orders(@RequestParam(required = false) OrderState.State state,
+                                                        @RequestParam(required = false) String buyer,
+                                                        @RequestParam(required = false) String freightCompany,
+                                                        @RequestParam(required = false) UUID account,
+                                                        @RequestParam(required = false) String deliveryFrom,
+                                                        @RequestParam(required = false) String deliveryTo,
+                                                        @RequestParam(defaultValue = "UNCONSUMED") Vault.StateStatus status,
+                                                        @RequestParam(defaultValue = "latestDeliveryDate") String sortBy,
+                                                        @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+                                                        @RequestParam(required = false) Integer page,
+                                                        @RequestParam(defaultValue = "100") int size) {
+        if ((page != null && page < 1) || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page must be at least 1 and the size between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        OrderListing.Query query;
+        Vault.Page<OrderState> first;
+        try {
+            query = new OrderListing.Query(status, state, buyer, freightCompany, account, deliveryFrom, deliveryTo, sortBy, direction);
+            first = page != null ? listing.page(query, page, size) : listing.firstPage(query);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return ResponseEntity.ok().header("X-Total-Count", Long.toString(first.getTotalStatesAvailable()))
+                .body(listing.stream(query, first, page == null));
+    }
+
+    /* The read endpoints below answer from the in-memory read model instead of querying the vault. */
+    @GetMapping(value = "/orders/{orderId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderUpdate> order(@PathVariable String orderId) {
+        return readModel.get(orderId).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/orders/by-state/{state}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<OrderUpdate> ordersByState(@PathVariable OrderState.State state) {
+        return readModel.byState(state);
+    }
+
+    /* The party is the organisation or the full X.500 name of the seller, the buyer or the freight company. */
+    @GetMapping(value = "/orders/by-party", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<OrderUpdate> ordersByParty(@RequestParam String party) {
+        return readModel.byParty(party);
+    }
+
+    @GetMapping(value = "/read-model", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> readModelStatus() {
+        return readModel.status();
+    }
+
+    /* If the seller or the buyer is an account, the order is created between the accounts of the two nodes. */
+    @PostMapping(value = "/orders", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> createOrder(@RequestParam String buyer, @RequestParam String orderId,
+                                                              @RequestParam int productId, @RequestParam double quantity,
+                                                              @RequestParam String price, @RequestParam String shippingCosts,
+                                                              @RequestParam String shippingAddress, @RequestParam String latestDeliveryDate,
+                                                              @RequestParam(required = false) String sellerAccount,
+                                                              @RequestParam(required = false) String buyerAccount) {
+        if (sellerAccount != null || buyerAccount != null) {
+            return startFlow(CreateAccountOrder.class, sellerAccount, buyer, buyerAccount, orderId, productId, quantity, price, shippingCosts, shippingAddress, latestDeliveryDate);
+        }
+        return startFlow(CreateOrder.class, buyer, orderId, productId, quantity, price, shippingCosts, shippingAddress, latestDeliveryDate);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/confirm", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> confirmOrder(@PathVariable String orderId) {
+        return startFlow(ConfirmOrder.class, orderId);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/ship", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> shipOrder(@PathVariable String orderId, @RequestParam String freightCompany,
+                                                            @RequestParam String trackingCode) {
+        return startFlow(ShipOrder.class, orderId, freightCompany, trackingCode);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/sign", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> signArrival(@PathVariable String orderId) {
+        return startFlow(SignArrival.class, orderId);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/acknowledge-arrival", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> acknowledgeArrival(@PathVariable String orderId) {
+        return startFlow(AcknowledgeArrival.class, orderId);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/sign-jointly", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> signArrivalJointly(@PathVariable String orderId) {
+        return startFlow(SignArrivalJointly.class, orderId);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/cancel", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> cancelOrder(@PathVariable String orderId) {
+        return startFlow(CancelOrder.class, orderId);
+    }
+
+    @PostMapping(value = "/orders/{orderId}/check-date", produces = "text/plain")
+    public DeferredResult<ResponseEntity<String>> checkDeliveryDate(@PathVariable String orderId) {
+        return startFlow(CheckDeliveryDate.class, orderId);
+    }
+
+    /* Starts the flow and binds the response to its result. A failed flow is answered with 400 and the message of its
+     * error, e.g. a violated contract rule, or with 409 if the order to be created already exists or the order is being
+     * changed by another flow. If the flow cannot be started, its arguments are answered with 400 if the node rejected
+     * them, and with 503 if the node cannot be reached. */
+    private DeferredResult<ResponseEntity<String>> startFlow(Class<? extends FlowLogic<String>> flowClass, Object... args) {
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>(flowTimeout);
+        FlowHandle<String> handle;
+        try {
+            handle = proxy.startFlowDynamic(flowClass, args);
+        } catch (RuntimeException e) {
+            HttpStatus status;
+            if (isArgumentError(e)) {
+                logger.warn("Could not start {}: {}", flowClass.getSimpleName(), e.getMessage());
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                logger.error("Could not start " + flowClass.getSimpleName() + ".", e);
+                status = e instanceof RPCException ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR;
+            }
+            result.setErrorResult(ResponseEntity.status(status).body(e.getMessage()));
+            return result;
+        }
+
+        result.onTimeout(() -> result.setErrorResult(ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body("Flow " + handle.getId().getUuid() + " is still running.")));
+        handle.getReturnValue().toCompletableFuture().whenComplete((message, error) -> {
+            if (error == null) {
+                result.setResult(ResponseEntity.ok(message));
+            } else {
+                Throwable cause = unwrap(error);
+                logger.warn("{} failed: {}", flowClass.getSimpleName(), cause.getMessage());
+                HttpStatus status = cause instanceof DuplicateOrderException || cause instanceof OrderLockedException ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST;
+                result.setErrorResult(ResponseEntity.status(status).body(cause.getMessage()));
+            }
+        });
+        return result;
+    }
+
+    /* Whether the node refused to start the flow with the given arguments, e.g. because no constructor of the flow
+     * matches them or the constructor rejected them. Exceptions the client does not know are only sent by name. */
+    private static boolean isArgumentError(Throwable error) {
+        for (; error != null; error = error.getCause()) {
+            if (error instanceof IllegalArgumentException) {
+                return true;
+            }
+            if (error instanceof CordaThrowable && isArgumentErrorClass(((CordaThrowable) error).getOriginalExceptionClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isArgumentErrorClass(String className) {
+        if (className == null) {
+            return false;
+        }
+        try {
+            return IllegalArgumentException.class.isAssignableFrom(Class.forName(className, false, Controller.class.getClassLoader()));
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
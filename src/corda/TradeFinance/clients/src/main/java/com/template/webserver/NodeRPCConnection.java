@@ -2,21 +2,37 @@ package com.template.webserver;
 
 import net.corda.client.rpc.CordaRPCClient;
 import net.corda.client.rpc.CordaRPCConnection;
+import net.corda.client.rpc.GracefulReconnect;
+import net.corda.client.rpc.RPCException;
 import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Wraps an RPC connection to a Corda node.
+ * Wraps a pool of RPC connections to a Corda node.
  *
- * The RPC connection is configured using command line arguments.
+ * The RPC connections are configured using command line arguments. Every call on the proxy is dispatched round-robin
+ * to the next healthy connection of the pool. The connections reconnect on their own after the node was restarted, and
+ * a periodic health check reopens connections that could not be established at all.
  */
 @Component
 public class NodeRPCConnection implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NodeRPCConnection.class);
+
     // The host of the node we are connecting to.
     @Value("${config.rpc.host}")
     private String host;
@@ -29,20 +45,145 @@ public class NodeRPCConnection implements AutoCloseable {
     // The password for logging into the RPC client.
     @Value("${config.rpc.port}")
     private int rpcPort;
+    // The number of RPC connections in the pool.
+    @Value("${config.rpc.poolSize:4}")
+    private int poolSize;
+    // The interval between two health checks in milliseconds.
+    @Value("${config.rpc.healthCheckInterval:10000}")
+    private long healthCheckInterval;
+    // How often a connection tries to reconnect after the node went away, -1 for no limit.
+    @Value("${config.rpc.maxReconnectAttempts:-1}")
+    private int maxReconnectAttempts;
 
-    private CordaRPCConnection rpcConnection;
-    CordaRPCOps proxy;
+    private final List<PooledConnection> pool = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rpc-health-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+    final CordaRPCOps proxy = (CordaRPCOps) Proxy.newProxyInstance(CordaRPCOps.class.getClassLoader(), new Class<?>[]{CordaRPCOps.class},
+            (target, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.invoke(this, args);
+                }
+                try {
+                    return method.invoke(nextConnection(), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
 
     @PostConstruct
     public void initialiseNodeRPCConnection() {
-        NetworkHostAndPort rpcAddress = new NetworkHostAndPort(host, rpcPort);
-        CordaRPCClient rpcClient = new CordaRPCClient(rpcAddress);
-        rpcConnection = rpcClient.start(username, password);
-        proxy = rpcConnection.getProxy();
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("The RPC connection pool must hold at least one connection.");
+        }
+        for (int i = 0; i < poolSize; i++) {
+            PooledConnection connection = new PooledConnection(i);
+            connection.open();
+            pool.add(connection);
+        }
+        if (pool.stream().noneMatch(PooledConnection::isHealthy)) {
+            throw new IllegalStateException("Could not connect to the node at " + host + ":" + rpcPort + ".");
+        }
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the number of connections that are currently usable.
+     */
+    public int healthyConnections() {
+        return (int) pool.stream().filter(PooledConnection::isHealthy).count();
+    }
+
+    public int size() {
+        return pool.size();
+    }
+
+    // Picks the next healthy connection. While none is healthy, the calls are queued on the reconnecting connections.
+    private CordaRPCOps nextConnection() {
+        for (int i = 0; i < pool.size(); i++) {
+            PooledConnection connection = pool.get(Math.floorMod(next.getAndIncrement(), pool.size()));
+            if (connection.isHealthy()) {
+                return connection.proxy;
+            }
+        }
+        for (PooledConnection connection : pool) {
+            if (connection.proxy != null) {
+                return connection.proxy;
+            }
+        }
+        throw new RPCException("No RPC connection to the node at " + host + ":" + rpcPort + " is available.");
+    }
+
+    private void checkHealth() {
+        for (PooledConnection connection : pool) {
+            try {
+                connection.check();
+            } catch (RuntimeException e) {
+                logger.warn("Health check of RPC connection {} failed.", connection.index, e);
+            }
+        }
     }
 
     @PreDestroy
     public void close() {
-        rpcConnection.notifyServerAndClose();
+        healthCheck.shutdownNow();
+        pool.forEach(PooledConnection::close);
+    }
+
+    private class PooledConnection {
+        private final int index;
+        private volatile CordaRPCConnection connection;
+        private volatile CordaRPCOps proxy;
+        private volatile boolean healthy;
+
+        PooledConnection(int index) {
+            this.index = index;
+        }
+
+        boolean isHealthy() {
+            return healthy && proxy != null;
+        }
+
+        // Opens the connection in the reconnecting mode, so that it survives restarts of the node.
+        void open() {
+            GracefulReconnect reconnect = new GracefulReconnect(() -> {
+                healthy = false;
+                logger.warn("RPC connection {} lost, reconnecting.", index);
+            }, () -> {
+                healthy = true;
+                logger.info("RPC connection {} reconnected.", index);
+            }, maxReconnectAttempts);
+            try {
+                connection = new CordaRPCClient(new NetworkHostAndPort(host, rpcPort)).start(username, password, reconnect);
+                proxy = connection.getProxy();
+                healthy = true;
+            } catch (RuntimeException e) {
+                logger.warn("Could not open RPC connection {} to {}:{}.", index, host, rpcPort, e);
+            }
+        }
+
+        // Pings the node with a cheap call and reopens the connection if it was never established.
+        void check() {
+            if (proxy == null) {
+                open();
+                return;
+            }
+            try {
+                proxy.currentNodeTime();
+                healthy = true;
+            } catch (RuntimeException e) {
+                healthy = false;
+                logger.warn("RPC connection {} is unhealthy: {}", index, e.getMessage());
+            }
+        }
+
+        void close() {
+            if (connection != null) {
+                connection.notifyServerAndClose();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.template.webserver;
+
+import com.template.states.OrderState;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import rx.Subscription;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * Tracks the orders in the vault of the node with a single vaultTrackBy subscription and passes every vault update on
+ * to the registered listeners.
+ *
+ * The listeners are called on the RPC client thread, so they must not block.
+ */
+@Component
+public class OrderFeed {
+    private final static Logger logger = LoggerFactory.getLogger(OrderFeed.class);
+
+    private final NodeRPCConnection rpc;
+    private final List<Consumer<Vault.Update<OrderState>>> listeners = new CopyOnWriteArrayList<>();
+    private Subscription subscription;
+
+    public OrderFeed(NodeRPCConnection rpc) {
+        this.rpc = rpc;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        // Only the updates are used here, so the snapshot is kept as small as possible.
+        DataFeed<Vault.Page<OrderState>, Vault.Update<OrderState>> feed = rpc.proxy.vaultTrackBy(
+                new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED), new PageSpecification(DEFAULT_PAGE_NUM, 1),
+                new Sort(Collections.emptySet()), OrderState.class);
+        subscription = feed.getUpdates().subscribe(
+                this::publish,
+                error -> logger.error("The order feed of the node failed.", error));
+    }
+
+    public void addListener(Consumer<Vault.Update<OrderState>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Vault.Update<OrderState>> listener) {
+        listeners.remove(listener);
+    }
+
+    private void publish(Vault.Update<OrderState> update) {
+        for (Consumer<Vault.Update<OrderState>> listener : listeners) {
+            try {
+                listener.accept(update);
+            } catch (RuntimeException e) {
+                logger.warn("An order listener failed.", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+}
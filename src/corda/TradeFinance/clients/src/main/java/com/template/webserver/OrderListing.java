@@ -0,0 +1,140 @@
+package com.template.webserver;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.template.schemas.OrderSchemaV1;
+import com.template.states.OrderState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.template.utils.DataUtils.accountCriteria;
+import static com.template.utils.DataUtils.orderColumn;
+import static com.template.utils.DataUtils.orderCriteria;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * Lists orders from the vault page by page, filtered and sorted by the indexed columns of the order schema.
+ *
+ * The orders are written to the response as soon as their page arrived, so that the webserver only ever holds a
+ * single page in memory, no matter how many orders are exported.
+ */
+@Component
+public class OrderListing {
+    // The columns of the order schema the orders can be sorted by.
+    private static final List<String> SORT_COLUMNS = Arrays.asList("orderId", "orderState", "buyer", "seller", "freightCompany", "productId", "latestDeliveryDate");
+
+    // The number of orders that are fetched from the node at a time while a listing is streamed.
+    @Value("${config.orders.pageSize:500}")
+    private int pageSize;
+
+    private final NodeRPCConnection rpc;
+    private final ObjectMapper mapper;
+
+    public OrderListing(NodeRPCConnection rpc, ObjectMapper mapper) {
+        this.rpc = rpc;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Holds a parsed listing request. Every filter is optional. The buyer and the freight company are given by their
+     * organisation or their full X.500 name, the account by the ID of an account hosted by the node, and the delivery
+     * dates as ISO dates, both inclusive.
+     */
+    public static class Query {
+        private final QueryCriteria criteria;
+        private final Sort sort;
+
+        public Query(Vault.StateStatus status, OrderState.State state, String buyer, String freightCompany, UUID account,
+                     String deliveryFrom, String deliveryTo, String sortBy, Sort.Direction direction) {
+            QueryCriteria criteria = account != null ? accountCriteria(account, status) : new QueryCriteria.VaultQueryCriteria(status);
+            if (state != null) {
+                criteria = criteria.and(orderCriteria(orderColumn("orderState", Builder.INSTANCE.equal(state.name())), status));
+            }
+            if (buyer != null) {
+                criteria = criteria.and(orderCriteria(party("buyer", buyer), status));
+            }
+            if (freightCompany != null) {
+                criteria = criteria.and(orderCriteria(party("freightCompany", freightCompany), status));
+            }
+            if (deliveryFrom != null) {
+                criteria = criteria.and(orderCriteria(orderColumn("latestDeliveryDate", Builder.INSTANCE.greaterThanOrEqual(startOfDay(deliveryFrom))), status));
+            }
+            if (deliveryTo != null) {
+                criteria = criteria.and(orderCriteria(orderColumn("latestDeliveryDate", Builder.INSTANCE.lessThan(startOfDay(deliveryTo).plusSeconds(86400))), status));
+            }
+            if (!SORT_COLUMNS.contains(sortBy)) {
+                throw new IllegalArgumentException("Orders can only be sorted by " + String.join(", ", SORT_COLUMNS) + ".");
+            }
+            this.criteria = criteria;
+            // The state reference breaks ties, so that the pages do not overlap.
+            this.sort = new Sort(ImmutableSet.of(
+                    new Sort.SortColumn(new SortAttribute.Custom(OrderSchemaV1.PersistentOrder.class, sortBy), direction),
+                    new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+        }
+    }
+
+    public Vault.Page<OrderState> page(Query query, int pageNumber, int pageSize) {
+        return rpc.proxy.vaultQueryBy(query.criteria, new PageSpecification(pageNumber, pageSize), query.sort, OrderState.class);
+    }
+
+    /**
+     * Fetches the first page of the query right away, so that invalid queries fail before the response is committed,
+     * and the remaining pages while the response is written.
+     */
+    public Vault.Page<OrderState> firstPage(Query query) {
+        return page(query, DEFAULT_PAGE_NUM, pageSize);
+    }
+
+    /**
+     * Writes the orders of the given page as a JSON array. If all pages are requested, the following pages are fetched
+     * and written one after the other.
+     */
+    public StreamingResponseBody stream(Query query, Vault.Page<OrderState> first, boolean allPages) {
+        return out -> {
+            try (JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                Vault.Page<OrderState> page = first;
+                long written = 0;
+                for (int pageNumber = DEFAULT_PAGE_NUM; ; pageNumber++) {
+                    if (pageNumber > DEFAULT_PAGE_NUM) {
+                        page = page(query, pageNumber, pageSize);
+                    }
+                    for (StateAndRef<OrderState> order : page.getStates()) {
+                        json.writeObject(new OrderUpdate(order));
+                    }
+                    json.flush();
+                    written += page.getStates().size();
+                    if (!allPages || page.getStates().isEmpty() || written >= page.getTotalStatesAvailable()) {
+                        break;
+                    }
+                }
+                json.writeEndArray();
+            }
+        };
+    }
+
+    // Matches the full X.500 name exactly, or else every party of the organisation.
+    private static CriteriaExpression<OrderSchemaV1.PersistentOrder, Boolean> party(String column, String party) {
+        if (party.contains("=")) {
+            return orderColumn(column, Builder.INSTANCE.equal(CordaX500Name.parse(party).toString()));
+        }
+        return orderColumn(column, Builder.INSTANCE.like("O=" + party + ",%"));
+    }
+
+    private static Instant startOfDay(String date) {
+        return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,245 @@
+package com.template.webserver;
+
+import com.google.common.collect.ImmutableSet;
+import com.template.states.OrderState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * Keeps all unconsumed orders of the node in memory, so that reads do not need an RPC round trip and a vault query.
+ *
+ * The orders are indexed by their order ID, their state and their parties (by X.500 name and by organisation). The
+ * model is loaded page by page from the vault and then kept current from the {@link OrderFeed}. Updates that arrive
+ * while the model is loaded are buffered and applied on top of the snapshot, which replaces the indexes only once it is
+ * complete, so that reads never see a partly loaded model. A periodic check compares the number of orders with the
+ * vault and reloads the model if they still differ after several checks in a row, e.g. after updates were missed during
+ * a node restart. A single difference is expected while an update is on its way from the node.
+ */
+@Component
+public class OrderReadModel {
+    private final static Logger logger = LoggerFactory.getLogger(OrderReadModel.class);
+
+    // The page size used to load the orders from the vault.
+    @Value("${config.readModel.pageSize:500}")
+    private int pageSize;
+    // The interval between two checks against the vault in milliseconds.
+    @Value("${config.readModel.checkInterval:30000}")
+    private long checkInterval;
+    // The number of checks in a row that have to find a different number of orders before the model is reloaded.
+    @Value("${config.readModel.reloadAfterMismatches:2}")
+    private int reloadAfterMismatches;
+
+    private final NodeRPCConnection rpc;
+    private final OrderFeed feed;
+    private final Consumer<Vault.Update<OrderState>> listener = this::onUpdate;
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-read-model-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Replaced as a whole when the model is loaded, and changed in place by updates, which are applied under this.
+    private volatile Index index = new Index();
+    // Guarded by this. Updates are buffered here while the model is loaded.
+    private List<Vault.Update<OrderState>> pending;
+    // Only accessed by the checker thread.
+    private int mismatches;
+    private volatile long lastUpdateAt;
+    private volatile long loadedAt;
+    private volatile long lastCheckAt;
+    private volatile long lastVaultCount = -1;
+    private volatile long updatesApplied;
+
+    public OrderReadModel(NodeRPCConnection rpc, OrderFeed feed) {
+        this.rpc = rpc;
+        this.feed = feed;
+    }
+
+    @PostConstruct
+    public void start() {
+        feed.addListener(listener);
+        load();
+        checker.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        checker.shutdownNow();
+        feed.removeListener(listener);
+    }
+
+    public Optional<OrderUpdate> get(String orderId) {
+        return Optional.ofNullable(index.byOrderId.get(orderId));
+    }
+
+    public List<OrderUpdate> byState(OrderState.State state) {
+        Index current = index;
+        return current.lookup(current.byState.get(state));
+    }
+
+    /**
+     * Returns the orders in which the party is the seller, the buyer or the freight company. The party is given by
+     * its X.500 name or its organisation.
+     */
+    public List<OrderUpdate> byParty(String party) {
+        Index current = index;
+        return current.lookup(current.byParty.get(party));
+    }
+
+    public int size() {
+        return index.byOrderId.size();
+    }
+
+    /**
+     * Describes how current the model is: the time since the last update was applied, since the model was loaded and
+     * since it was last compared with the vault, and whether the vault held the same number of orders then.
+     */
+    public Map<String, Object> status() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("orders", size());
+        status.put("updatesApplied", updatesApplied);
+        status.put("millisSinceLastUpdate", lastUpdateAt > 0 ? now - lastUpdateAt : null);
+        status.put("millisSinceLoad", loadedAt > 0 ? now - loadedAt : null);
+        status.put("millisSinceCheck", lastCheckAt > 0 ? now - lastCheckAt : null);
+        status.put("vaultOrders", lastVaultCount >= 0 ? lastVaultCount : null);
+        status.put("inSync", lastVaultCount < 0 || lastVaultCount == size());
+        return status;
+    }
+
+    // Loads all unconsumed orders page by page into a new index, applies the updates that arrived in the meantime and
+    // then replaces the index.
+    private void load() {
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+        List<StateAndRef<OrderState>> snapshot = new ArrayList<>();
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        Sort sort = new Sort(ImmutableSet.of(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+        for (int pageNumber = DEFAULT_PAGE_NUM; ; pageNumber++) {
+            Vault.Page<OrderState> page = rpc.proxy.vaultQueryBy(criteria, new PageSpecification(pageNumber, pageSize), sort, OrderState.class);
+            snapshot.addAll(page.getStates());
+            if ((long) pageNumber * pageSize >= page.getTotalStatesAvailable()) {
+                break;
+            }
+        }
+
+        synchronized (this) {
+            // A state that was consumed by a buffered update is older than the version the update produced.
+            Set<String> consumed = pending.stream().flatMap(update -> update.getConsumed().stream())
+                    .map(stateAndRef -> stateAndRef.getRef().toString()).collect(Collectors.toSet());
+            Index loaded = new Index();
+            snapshot.stream().filter(stateAndRef -> !consumed.contains(stateAndRef.getRef().toString())).forEach(loaded::put);
+            pending.forEach(update -> apply(loaded, update));
+            index = loaded;
+            pending = null;
+            loadedAt = System.currentTimeMillis();
+        }
+        logger.info("Loaded {} orders into the read model.", size());
+    }
+
+    // Called on the RPC client thread.
+    private synchronized void onUpdate(Vault.Update<OrderState> update) {
+        if (pending != null) {
+            pending.add(update);
+        } else {
+            apply(index, update);
+        }
+    }
+
+    private void apply(Index target, Vault.Update<OrderState> update) {
+        update.getConsumed().forEach(consumed -> {
+            String orderId = target.orderIdByStateRef.get(consumed.getRef().toString());
+            if (orderId != null) {
+                target.remove(orderId);
+            }
+        });
+        update.getProduced().forEach(target::put);
+        updatesApplied++;
+        lastUpdateAt = System.currentTimeMillis();
+    }
+
+    private static List<String> parties(OrderUpdate order) {
+        List<String> parties = new ArrayList<>();
+        for (String name : Arrays.asList(order.getSeller(), order.getBuyer(), order.getFreightCompany())) {
+            if (name != null) {
+                parties.add(name);
+                parties.add(CordaX500Name.parse(name).getOrganisation());
+            }
+        }
+        return parties;
+    }
+
+    // Compares the number of orders with the vault and reloads the model if they differed in enough checks in a row.
+    private void check() {
+        try {
+            Vault.Page<OrderState> page = rpc.proxy.vaultQueryBy(new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
+                    new PageSpecification(DEFAULT_PAGE_NUM, 1), new Sort(Collections.emptySet()), OrderState.class);
+            lastVaultCount = page.getTotalStatesAvailable();
+            lastCheckAt = System.currentTimeMillis();
+            mismatches = lastVaultCount != size() ? mismatches + 1 : 0;
+            if (mismatches >= reloadAfterMismatches) {
+                logger.warn("The read model holds {} orders, but the vault {} in {} checks in a row. Reloading it.", size(), lastVaultCount, mismatches);
+                mismatches = 0;
+                load();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not check the read model against the vault.", e);
+        }
+    }
+
+    // The orders indexed by their order ID, their state and their parties.
+    private static class Index {
+        private final Map<String, OrderUpdate> byOrderId = new ConcurrentHashMap<>();
+        private final Map<OrderState.State, Set<String>> byState = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> byParty = new ConcurrentHashMap<>();
+        private final Map<String, String> orderIdByStateRef = new ConcurrentHashMap<>();
+
+        private List<OrderUpdate> lookup(Set<String> orderIds) {
+            if (orderIds == null) {
+                return Collections.emptyList();
+            }
+            return orderIds.stream().map(byOrderId::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+
+        private void put(StateAndRef<OrderState> stateAndRef) {
+            OrderUpdate order = new OrderUpdate(stateAndRef);
+            remove(order.getOrderId());
+            byOrderId.put(order.getOrderId(), order);
+            orderIdByStateRef.put(order.getStateRef(), order.getOrderId());
+            byState.computeIfAbsent(order.getOrderState(), state -> ConcurrentHashMap.newKeySet()).add(order.getOrderId());
+            parties(order).forEach(party -> byParty.computeIfAbsent(party, key -> ConcurrentHashMap.newKeySet()).add(order.getOrderId()));
+        }
+
+        private void remove(String orderId) {
+            OrderUpdate order = byOrderId.remove(orderId);
+            if (order == null) {
+                return;
+            }
+            orderIdByStateRef.remove(order.getStateRef());
+            byState.getOrDefault(order.getOrderState(), Collections.emptySet()).remove(orderId);
+            parties(order).forEach(party -> byParty.getOrDefault(party, Collections.emptySet()).remove(orderId));
+        }
+    }
+}
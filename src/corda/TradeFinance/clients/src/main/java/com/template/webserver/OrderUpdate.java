@@ -0,0 +1,128 @@
+package com.template.webserver;
+
+import com.template.states.OrderState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.crypto.CryptoUtils;
+import net.corda.core.identity.AnonymousParty;
+import net.corda.core.identity.Party;
+
+/**
+ * A view of an order as it is sent to HTTP clients. The parties are given by their X.500 names, and the accounts of
+ * the seller and the buyer, if any, by the hash of their key.
+ */
+public class OrderUpdate {
+    private final String orderId;
+    private final String stateRef;
+    private final OrderState.State orderState;
+    private final String seller;
+    private final String buyer;
+    private final String freightCompany;
+    private final int productId;
+    private final double quantity;
+    private final String price;
+    private final String shippingCosts;
+    private final String shippingAddress;
+    private final String latestDeliveryDate;
+    private final String trackingCode;
+    private final boolean buyerSigned;
+    private final boolean freightSigned;
+    private final String sellerAccount;
+    private final String buyerAccount;
+
+    public OrderUpdate(StateAndRef<OrderState> stateAndRef) {
+        OrderState order = stateAndRef.getState().getData();
+        this.orderId = order.getLinearId().getExternalId();
+        this.stateRef = stateAndRef.getRef().toString();
+        this.orderState = order.getOrderState();
+        this.seller = name(order.getSeller());
+        this.buyer = name(order.getBuyer());
+        this.freightCompany = name(order.getFreightCompany());
+        this.productId = order.getProductId();
+        this.quantity = order.getQuantity();
+        this.price = order.getPrice().toString();
+        this.shippingCosts = order.getShippingCosts().toString();
+        this.shippingAddress = order.getShippingAddress();
+        this.latestDeliveryDate = order.getLatestDeliveryDate().toString();
+        this.trackingCode = order.getTrackingCode();
+        this.buyerSigned = order.isBuyerSigned();
+        this.freightSigned = order.isFreightSigned();
+        this.sellerAccount = key(order.getSellerAccount());
+        this.buyerAccount = key(order.getBuyerAccount());
+    }
+
+    private static String name(Party party) {
+        return party != null ? party.getName().toString() : null;
+    }
+
+    private static String key(AnonymousParty account) {
+        return account != null ? CryptoUtils.toStringShort(account.getOwningKey()) : null;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getStateRef() {
+        return stateRef;
+    }
+
+    public OrderState.State getOrderState() {
+        return orderState;
+    }
+
+    public String getSeller() {
+        return seller;
+    }
+
+    public String getBuyer() {
+        return buyer;
+    }
+
+    public String getFreightCompany() {
+        return freightCompany;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public String getPrice() {
+        return price;
+    }
+
+    public String getShippingCosts() {
+        return shippingCosts;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public String getLatestDeliveryDate() {
+        return latestDeliveryDate;
+    }
+
+    public String getTrackingCode() {
+        return trackingCode;
+    }
+
+    public boolean isBuyerSigned() {
+        return buyerSigned;
+    }
+
+    public boolean isFreightSigned() {
+        return freightSigned;
+    }
+
+    public String getSellerAccount() {
+        return sellerAccount;
+    }
+
+    public String getBuyerAccount() {
+        return buyerAccount;
+    }
+}
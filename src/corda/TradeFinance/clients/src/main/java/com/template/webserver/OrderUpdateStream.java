@@ -0,0 +1,188 @@
+package com.template.webserver;
+
+import com.template.states.OrderState;
+import net.corda.core.node.services.Vault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Pushes order updates to HTTP clients as Server-Sent Events, so that they do not have to poll the node.
+ *
+ * All clients share the single subscription of the {@link OrderFeed}. Every client has a filter and a bounded buffer,
+ * which a shared pool of sender threads drains. A slow client only delays itself: if its buffer overflows, the oldest
+ * updates are dropped and a "resync" event tells the client to reload the orders it is interested in. A client that
+ * does not take a single update within the send timeout is dropped, so that it does not hold a sender thread.
+ */
+@Component
+public class OrderUpdateStream {
+    private final static Logger logger = LoggerFactory.getLogger(OrderUpdateStream.class);
+
+    // The number of updates that are buffered per client.
+    @Value("${config.stream.bufferSize:256}")
+    private int bufferSize;
+    // How long a stream stays open in milliseconds. Clients reconnect on their own once it was closed.
+    @Value("${config.stream.timeout:1800000}")
+    private long timeout;
+    // The number of threads that send the updates to the clients.
+    @Value("${config.stream.senderThreads:4}")
+    private int senderThreads;
+    // How long sending a single update may block in milliseconds before the client is dropped.
+    @Value("${config.stream.sendTimeout:10000}")
+    private long sendTimeout;
+
+    private final OrderFeed feed;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final Consumer<Vault.Update<OrderState>> listener = update -> update.getProduced().forEach(produced -> publish(new OrderUpdate(produced)));
+    private ExecutorService senders;
+    private ScheduledExecutorService watchdog;
+
+    public OrderUpdateStream(OrderFeed feed) {
+        this.feed = feed;
+    }
+
+    @PostConstruct
+    public void start() {
+        senders = Executors.newFixedThreadPool(senderThreads);
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-stream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::dropBlockedClients, sendTimeout, Math.max(sendTimeout / 2, 1), TimeUnit.MILLISECONDS);
+        feed.addListener(listener);
+    }
+
+    /**
+     * Opens a stream of the updates that match all given filters. A null filter matches every order. The buyer
+     * matches the organisation or the full X.500 name.
+     */
+    public SseEmitter subscribe(String orderId, String buyer, OrderState.State state) {
+        Predicate<OrderUpdate> filter = update -> (orderId == null || orderId.equals(update.getOrderId()))
+                && (buyer == null || buyer.equals(update.getBuyer()) || update.getBuyer().startsWith("O=" + buyer + ","))
+                && (state == null || state == update.getOrderState());
+        SseEmitter emitter = new SseEmitter(timeout);
+        Client client = new Client(emitter, filter);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        clients.add(client);
+        return emitter;
+    }
+
+    public int clients() {
+        return clients.size();
+    }
+
+    // Called on the RPC client thread, so it only buffers the update.
+    private void publish(OrderUpdate update) {
+        for (Client client : clients) {
+            if (client.filter.test(update)) {
+                client.offer(update);
+            }
+        }
+    }
+
+    // Completing the response of a blocked client closes its connection, which fails the blocked send.
+    private void dropBlockedClients() {
+        long now = System.currentTimeMillis();
+        for (Client client : clients) {
+            long sendStarted = client.sendStarted;
+            if (sendStarted != 0 && now - sendStarted > sendTimeout) {
+                logger.info("Dropping an order stream that did not take an update for {} ms.", now - sendStarted);
+                client.drop(new IOException("Sending an update timed out."));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        feed.removeListener(listener);
+        watchdog.shutdownNow();
+        clients.forEach(client -> client.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    private class Client {
+        private final SseEmitter emitter;
+        private final Predicate<OrderUpdate> filter;
+        // Guarded by this. At most one sender drains the buffer at a time.
+        private final ArrayDeque<OrderUpdate> buffer = new ArrayDeque<>();
+        private boolean overflowed;
+        private boolean sending;
+        // When the current send started, or 0 while no update is being sent.
+        private volatile long sendStarted;
+
+        Client(SseEmitter emitter, Predicate<OrderUpdate> filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        void offer(OrderUpdate update) {
+            synchronized (this) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.poll();
+                    overflowed = true;
+                }
+                buffer.add(update);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            senders.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                OrderUpdate update;
+                boolean resync;
+                synchronized (this) {
+                    resync = overflowed;
+                    overflowed = false;
+                    update = resync ? null : buffer.poll();
+                    if (!resync && update == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    sendStarted = System.currentTimeMillis();
+                    if (resync) {
+                        emitter.send(SseEmitter.event().name("resync").data("Updates were dropped, reload the orders."));
+                    } else {
+                        emitter.send(SseEmitter.event().name("order").id(update.getStateRef()).data(update, MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away or was dropped.
+                    logger.debug("Closing order stream: {}", e.getMessage());
+                    drop(e);
+                    return;
+                } finally {
+                    sendStarted = 0;
+                }
+            }
+        }
+
+        void drop(Throwable error) {
+            if (clients.remove(this)) {
+                emitter.completeWithError(error);
+            }
+        }
+    }
+}
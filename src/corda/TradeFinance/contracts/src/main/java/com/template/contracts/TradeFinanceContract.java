@@ -1,19 +1,24 @@
 package com.template.contracts;
 
 import com.template.states.OrderState;
+import net.corda.core.contracts.Command;
 import net.corda.core.contracts.CommandData;
-import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
-import net.corda.core.identity.AbstractParty;
+import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.identity.Party;
+import net.corda.core.serialization.ConstructorForDeserialization;
+import net.corda.core.serialization.DeprecatedConstructorForDeserialization;
 import net.corda.core.transactions.LedgerTransaction;
 
+import java.security.PublicKey;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
 import static net.corda.core.contracts.ContractsDSL.requireThat;
 
 // ************
@@ -28,111 +33,241 @@ public class TradeFinanceContract implements Contract {
     @Override
     public void verify(LedgerTransaction tx) {
 
-        /* We can use the requireSingleCommand function to extract command data from a transaction.
-         * However, it is possible to have multiple commands in a single transaction.*/
-        final CommandWithParties<Commands> command = requireSingleCommand(tx.getCommands(), Commands.class);
+        /* A transaction may move several orders at once. The orders are grouped by their linear ID and every group is
+         * verified against the command that refers to it. A command without order IDs refers to all groups.*/
+        final List<Command<Commands>> commands = tx.commandsOfType(Commands.class);
+        final List<LedgerTransaction.InOutGroup<OrderState, UniqueIdentifier>> groups = tx.groupStates(OrderState.class, OrderState::getLinearId);
+        requireThat(require -> {
+            require.using("At least one command is required.", !commands.isEmpty());
+            require.using("At least one order must be part of the transaction.", !groups.isEmpty());
+            // The linear ID of a new order contains a random UUID, so a new order with the order ID of another order
+            // forms a group of its own and the groups have to be compared by their order ID.
+            require.using("Order IDs must be unique within a transaction.", groups.stream()
+                    .map(group -> group.getGroupingKey().getExternalId()).distinct().count() == groups.size());
+            return null;
+        });
 
-        //Retrieve the input and output states of the transaction
-        OrderState input = tx.getInputs().size() != 0 ? tx.inputsOfType(OrderState.class).get(0) : null;
-        OrderState output = tx.outputsOfType(OrderState.class).get(0);
-        if (command.getValue() instanceof Commands.Create) {
+        for (LedgerTransaction.InOutGroup<OrderState, UniqueIdentifier> group : groups) {
+            List<Command<Commands>> matching = commands.stream()
+                    .filter(command -> command.getValue().appliesTo(group.getGroupingKey())).collect(Collectors.toList());
+            requireThat(require -> {
+                require.using("Exactly one command must refer to the order " + group.getGroupingKey() + ".", matching.size() == 1);
+                return null;
+            });
+            verifyGroup(matching.get(0).getValue(), matching.get(0).getSigners(), group.getInputs(), group.getOutputs());
+            verifyAccounts(matching.get(0).getSigners(), group.getInputs(), group.getOutputs());
+        }
+
+        for (Command<Commands> command : commands) {
+            requireThat(require -> {
+                require.using("Every command must refer to an order of the transaction.", command.getValue().getOrderIds().stream()
+                        .allMatch(orderId -> groups.stream().anyMatch(group -> group.getGroupingKey().equals(orderId))));
+                return null;
+            });
+        }
+    }
+
+    // Verifies the transition of a single order from its input (if any) to its output.
+    private void verifyGroup(Commands command, List<PublicKey> signers, List<OrderState> inputs, List<OrderState> outputs) {
+        requireThat(require -> {
+            require.using("Exactly one output should be created for every order.", outputs.size() == 1);
+            return null;
+        });
+        OrderState input = inputs.isEmpty() ? null : inputs.get(0);
+        OrderState output = outputs.get(0);
+        if (command instanceof Commands.Create) {
             //Using Corda DSL function requireThat to replicate conditions-checks
             requireThat(require -> {
-                require.using("No inputs should be consumed when adding a new order.", tx.getInputStates().size() == 0);
-                require.using("Only the seller is allowed to start this flow.", command.getValue().getInitiator().getOwningKey().equals(output.getSeller().getOwningKey()));
-                require.using("The price must be greater or equal to the shipping costs.", output.getPrice().compareTo(output.getShippingCosts()) >= 0);
+                require.using("No inputs should be consumed when adding a new order.", inputs.size() == 0);
+                require.using("Only the seller is allowed to start this flow.", command.getInitiator().getOwningKey().equals(output.getSeller().getOwningKey()));
+                require.using("The price must be greater or equal to the shipping costs.", output.getPriceQuantity() >= output.getShippingCostsQuantity());
+                require.using("The quantity must be exact to " + OrderState.QUANTITY_SCALE + " decimal places.", hasExactQuantity(output));
                 return null;
             });
-        } else if (command.getValue() instanceof Commands.Cancel) {
+        } else if (command instanceof Commands.Cancel) {
             //Using Corda DSL function requireThat to replicate conditions-checks
             requireThat(require -> {
-                require.using("Exactly one input should be consumed when cancelling an order.", tx.getInputStates().size() == 1);
+                require.using("Exactly one input should be consumed when cancelling an order.", inputs.size() == 1);
                 require.using("Function cannot be called at this state: " + input.getOrderState(), Stream.of(input.getOrderState()).anyMatch(Arrays.asList(OrderState.State.CREATED, OrderState.State.CONFIRMED)::contains));
-                require.using("Only the the seller or the buyer are allowed to start this flow.", Arrays.asList(output.getSeller().getOwningKey(), output.getBuyer().getOwningKey()).contains(command.getValue().getInitiator().getOwningKey()));
+                require.using("Only the the seller or the buyer are allowed to start this flow.", Arrays.asList(output.getSeller().getOwningKey(), output.getBuyer().getOwningKey()).contains(command.getInitiator().getOwningKey()));
                 return null;
             });
-        } else if (command.getValue() instanceof Commands.CheckDate) {
+        } else if (command instanceof Commands.CheckDate) {
             //Using Corda DSL function requireThat to replicate conditions-checks
             requireThat(require -> {
-                require.using("Exactly one input should be consumed when checking the order delivery date.", tx.getInputStates().size() == 1);
+                require.using("Exactly one input should be consumed when checking the order delivery date.", inputs.size() == 1);
                 require.using("Function cannot be called at this state: " + input.getOrderState(), input.getOrderState() != OrderState.State.DELIVERED);
                 require.using("Delivery date did not pass yet.", Instant.now().isAfter(input.getLatestDeliveryDate()));
                 require.using("Refund not possible as the freight company already signed the arrival.", !input.isFreightSigned());
                 return null;
             });
-        } else if (command.getValue() instanceof Commands.Confirm) {
+        } else if (command instanceof Commands.Confirm) {
             //Using Corda DSL function requireThat to replicate conditions-checks
             requireThat(require -> {
-                require.using("Exactly one input should be consumed when confirming an order.", tx.getInputStates().size() == 1);
+                require.using("Exactly one input should be consumed when confirming an order.", inputs.size() == 1);
                 require.using("Function cannot be called at this state: " + input.getOrderState(), input.getOrderState() == OrderState.State.CREATED);
-                require.using("Only the buyer is allowed to start this flow.", command.getValue().getInitiator().getOwningKey().equals(output.getBuyer().getOwningKey()));
+                require.using("Only the buyer is allowed to start this flow.", command.getInitiator().getOwningKey().equals(output.getBuyer().getOwningKey()));
                 return null;
             });
-        } else if (command.getValue() instanceof Commands.Ship) {
+        } else if (command instanceof Commands.Ship) {
             //Using Corda DSL function requireThat to replicate conditions-checks
             requireThat(require -> {
-                require.using("Exactly one input should be consumed when shipping an order.", tx.getInputStates().size() == 1);
+                require.using("Exactly one input should be consumed when shipping an order.", inputs.size() == 1);
                 require.using("Function cannot be called at this state: " + input.getOrderState(), input.getOrderState() == OrderState.State.CONFIRMED);
-                require.using("Only the seller is allowed to start this flow.", command.getValue().getInitiator().getOwningKey().equals(output.getSeller().getOwningKey()));
+                require.using("Only the seller is allowed to start this flow.", command.getInitiator().getOwningKey().equals(output.getSeller().getOwningKey()));
                 return null;
             });
-        } else if (command.getValue() instanceof Commands.Sign) {
+        } else if (command instanceof Commands.Sign) {
             //Using Corda DSL function requireThat to replicate conditions-checks
             requireThat(require -> {
-                require.using("Exactly one input should be consumed when signing an order.", tx.getInputStates().size() == 1);
+                require.using("Exactly one input should be consumed when signing an order.", inputs.size() == 1);
                 require.using("Function cannot be called at this state: " + input.getOrderState(), input.getOrderState() == OrderState.State.SHIPPED);
-                require.using("Only the buyer and freight company are allowed to start this flow.", Arrays.asList(output.getBuyer().getOwningKey(), output.getFreightCompany().getOwningKey()).contains(command.getValue().getInitiator().getOwningKey()));
+                require.using("Only the buyer and freight company are allowed to start this flow.", Arrays.asList(output.getBuyer().getOwningKey(), output.getFreightCompany().getOwningKey()).contains(command.getInitiator().getOwningKey()));
+                return null;
+            });
+        } else if (command instanceof Commands.SignJointly) {
+            //Using Corda DSL function requireThat to replicate conditions-checks
+            requireThat(require -> {
+                require.using("Exactly one input should be consumed when signing an order jointly.", inputs.size() == 1);
+                require.using("Function cannot be called at this state: " + input.getOrderState(), input.getOrderState() == OrderState.State.SHIPPED);
+                require.using("Only the buyer and freight company are allowed to start this flow.", Arrays.asList(output.getBuyer().getOwningKey(), output.getFreightCompany().getOwningKey()).contains(command.getInitiator().getOwningKey()));
+                require.using("The buyer and the freight company must both sign.", signers.containsAll(Arrays.asList(output.getBuyer().getOwningKey(), output.getFreightCompany().getOwningKey())));
+                require.using("The arrival must be signed by the buyer and the freight company.", output.isBuyerSigned() && output.isFreightSigned());
+                require.using("The order must be delivered.", output.getOrderState() == OrderState.State.DELIVERED);
                 return null;
             });
         }
     }
 
+    // Whether the quantity of the order reads back as the fixed-point number it is stored as.
+    private static boolean hasExactQuantity(OrderState order) {
+        try {
+            return OrderState.scale(order.getQuantity()) == order.getScaledQuantity();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Verifies that the accounts of an order never change and that they sign every transition of the order.
+    private void verifyAccounts(List<PublicKey> signers, List<OrderState> inputs, List<OrderState> outputs) {
+        OrderState input = inputs.isEmpty() ? null : inputs.get(0);
+        OrderState output = outputs.get(0);
+        requireThat(require -> {
+            if (input != null) {
+                require.using("The seller account of an order cannot change.", Objects.equals(input.getSellerAccount(), output.getSellerAccount()));
+                require.using("The buyer account of an order cannot change.", Objects.equals(input.getBuyerAccount(), output.getBuyerAccount()));
+            }
+            require.using("The seller account must sign.", output.getSellerAccount() == null || signers.contains(output.getSellerAccount().getOwningKey()));
+            require.using("The buyer account must sign.", output.getBuyerAccount() == null || signers.contains(output.getBuyerAccount().getOwningKey()));
+            return null;
+        });
+    }
+
     // Used to indicate the transaction's intent.
+    // The order IDs restrict a command to some orders of the transaction, if none are given it refers to all of them.
     public abstract static class Commands implements CommandData {
         private Party initiator;
+        private List<UniqueIdentifier> orderIds;
 
-        public Commands(Party initiator) {
+        public Commands(Party initiator, List<UniqueIdentifier> orderIds) {
             this.initiator = initiator;
+            this.orderIds = orderIds != null ? orderIds : Collections.emptyList();
         }
 
         public Party getInitiator() {
             return initiator;
         }
 
+        public List<UniqueIdentifier> getOrderIds() {
+            return orderIds;
+        }
+
+        public boolean appliesTo(UniqueIdentifier orderId) {
+            return orderIds.isEmpty() || orderIds.contains(orderId);
+        }
+
         public static class Create extends Commands {
+            @DeprecatedConstructorForDeserialization(version = 1)
             public Create(Party initiator) {
-                super(initiator);
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public Create(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
             }
         }
 
         public static class CheckDate extends Commands {
+            @DeprecatedConstructorForDeserialization(version = 1)
             public CheckDate(Party initiator) {
-                super(initiator);
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public CheckDate(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
             }
         }
 
         public static class Cancel extends Commands {
+            @DeprecatedConstructorForDeserialization(version = 1)
             public Cancel(Party initiator) {
-                super(initiator);
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public Cancel(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
             }
         }
 
         public static class Confirm extends Commands {
+            @DeprecatedConstructorForDeserialization(version = 1)
             public Confirm(Party initiator) {
-                super(initiator);
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public Confirm(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
             }
         }
 
         public static class Ship extends Commands {
+            @DeprecatedConstructorForDeserialization(version = 1)
             public Ship(Party initiator) {
-                super(initiator);
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public Ship(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
             }
         }
 
         public static class Sign extends Commands {
+            @DeprecatedConstructorForDeserialization(version = 1)
             public Sign(Party initiator) {
-                super(initiator);
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public Sign(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
+            }
+        }
+
+        // Signs the arrival for the buyer and the freight company at once and delivers the order.
+        public static class SignJointly extends Commands {
+            public SignJointly(Party initiator) {
+                super(initiator, null);
+            }
+
+            @ConstructorForDeserialization
+            public SignJointly(Party initiator, List<UniqueIdentifier> orderIds) {
+                super(initiator, orderIds);
             }
         }
     }
-}
\ No newline at end of file
+}
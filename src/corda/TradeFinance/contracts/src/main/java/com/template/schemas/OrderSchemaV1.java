@@ -0,0 +1,100 @@
+package com.template.schemas;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An OrderState schema. Every column that flows query by is indexed, so that order lookups do not have to scan the
+ * vault.
+ */
+public class OrderSchemaV1 extends MappedSchema {
+    public OrderSchemaV1() {
+        super(OrderSchema.class, 1, ImmutableList.of(PersistentOrder.class));
+    }
+
+    @Override
+    public String getMigrationResource() {
+        return "order.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "order_states", indexes = {
+            @Index(name = "order_id_idx", columnList = "order_id"),
+            @Index(name = "order_state_idx", columnList = "order_state"),
+            @Index(name = "order_buyer_idx", columnList = "buyer"),
+            @Index(name = "order_seller_idx", columnList = "seller"),
+            @Index(name = "order_freight_company_idx", columnList = "freight_company"),
+            @Index(name = "order_product_id_idx", columnList = "product_id"),
+            @Index(name = "order_latest_delivery_date_idx", columnList = "latest_delivery_date")
+    })
+    public static class PersistentOrder extends PersistentState {
+        @Column(name = "order_id", nullable = false) private final String orderId;
+        @Column(name = "linear_id", nullable = false) private final UUID linearId;
+        @Column(name = "order_state", nullable = false) private final String orderState;
+        @Column(name = "buyer", nullable = false) private final String buyer;
+        @Column(name = "seller", nullable = false) private final String seller;
+        @Column(name = "freight_company") private final String freightCompany;
+        @Column(name = "product_id") private final int productId;
+        @Column(name = "latest_delivery_date") private final Instant latestDeliveryDate;
+
+        public PersistentOrder(String orderId, UUID linearId, String orderState, String buyer, String seller, String freightCompany, int productId, Instant latestDeliveryDate) {
+            this.orderId = orderId;
+            this.linearId = linearId;
+            this.orderState = orderState;
+            this.buyer = buyer;
+            this.seller = seller;
+            this.freightCompany = freightCompany;
+            this.productId = productId;
+            this.latestDeliveryDate = latestDeliveryDate;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentOrder() {
+            this.orderId = null;
+            this.linearId = null;
+            this.orderState = null;
+            this.buyer = null;
+            this.seller = null;
+            this.freightCompany = null;
+            this.productId = 0;
+            this.latestDeliveryDate = null;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public UUID getLinearId() {
+            return linearId;
+        }
+
+        public String getOrderState() {
+            return orderState;
+        }
+
+        public String getBuyer() {
+            return buyer;
+        }
+
+        public String getSeller() {
+            return seller;
+        }
+
+        public String getFreightCompany() {
+            return freightCompany;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public Instant getLatestDeliveryDate() {
+            return latestDeliveryDate;
+        }
+    }
+}
@@ -1,13 +1,26 @@
 package com.template.states;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.template.contracts.TradeFinanceContract;
+import com.template.schemas.OrderSchemaV1;
 import net.corda.core.contracts.*;
+import net.corda.core.flows.FlowLogicRefFactory;
 import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.AnonymousParty;
 import net.corda.core.identity.Party;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
 import net.corda.core.serialization.ConstructorForDeserialization;
 import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.serialization.DeprecatedConstructorForDeserialization;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Currency;
@@ -20,7 +33,7 @@ import java.util.stream.Stream;
 // * State *
 // *********
 @BelongsToContract(TradeFinanceContract.class)
-public class OrderState implements LinearState {
+public class OrderState implements LinearState, QueryableState, SchedulableState {
 
     @NotNull
     @Override
@@ -38,52 +51,98 @@ public class OrderState implements LinearState {
         PASSED
     }
 
+    // The quantity is stored as a fixed-point number with this many decimal places.
+    public static final int QUANTITY_SCALE = 3;
+    private static final double QUANTITY_FACTOR = Math.pow(10, QUANTITY_SCALE);
+
+    // Addresses and tracking codes repeat across all versions of an order, so every version shares a single instance.
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
     //private variables
     private Party seller;
     private State orderState;
     private Party buyer;
     private UniqueIdentifier orderId;
     private int productId;
-    private double quantity;
-    private Amount<Currency> price;
-    private Amount<Currency> shippingCosts;
+    private long scaledQuantity;
+    private Currency currency;
+    private long priceQuantity;
+    private long shippingCostsQuantity;
     private String shippingAddress;
     private Instant latestDeliveryDate;
     private Party freightCompany;
     private String trackingCode;
     private boolean buyerSigned;
     private boolean freightSigned;
+    private AnonymousParty sellerAccount;
+    private AnonymousParty buyerAccount;
 
-    /* Constructor of your Corda state */
+    /* Constructor of your Corda state. The quantity is a fixed-point number (see QUANTITY_SCALE), and the price and the
+     * shipping costs are given in the smallest unit of their shared currency, as in Amount. If the seller or the buyer
+     * is an account hosted by its node, the account is given as a fresh key of the account, otherwise it is null. */
     @ConstructorForDeserialization
-    public OrderState(Party seller, State orderState, Party buyer, UniqueIdentifier orderId, int productId, double quantity, Amount<Currency> price, Amount<Currency> shippingCosts, String shippingAddress, Instant latestDeliveryDate, Party freightCompany, String trackingCode, boolean buyerSigned, boolean freightSigned) {
+    public OrderState(Party seller, State orderState, Party buyer, UniqueIdentifier orderId, int productId, long scaledQuantity, Currency currency, long priceQuantity, long shippingCostsQuantity, String shippingAddress, Instant latestDeliveryDate, Party freightCompany, String trackingCode, boolean buyerSigned, boolean freightSigned, AnonymousParty sellerAccount, AnonymousParty buyerAccount) {
         this.seller = seller;
         this.orderState = orderState;
         this.buyer = buyer;
         this.orderId = orderId;
         this.productId = productId;
-        this.quantity = quantity;
-        this.price = price;
-        this.shippingCosts = shippingCosts;
-        this.shippingAddress = shippingAddress;
+        this.scaledQuantity = scaledQuantity;
+        this.currency = currency;
+        this.priceQuantity = priceQuantity;
+        this.shippingCostsQuantity = shippingCostsQuantity;
+        this.shippingAddress = intern(shippingAddress);
         this.latestDeliveryDate = latestDeliveryDate;
         this.freightCompany = freightCompany;
-        this.trackingCode = trackingCode;
+        this.trackingCode = intern(trackingCode);
         this.buyerSigned = buyerSigned;
         this.freightSigned = freightSigned;
+        this.sellerAccount = sellerAccount;
+        this.buyerAccount = buyerAccount;
+    }
+
+    /* Reads orders that were serialized before the seller and the buyer could be accounts. */
+    @DeprecatedConstructorForDeserialization(version = 2)
+    public OrderState(Party seller, State orderState, Party buyer, UniqueIdentifier orderId, int productId, long scaledQuantity, Currency currency, long priceQuantity, long shippingCostsQuantity, String shippingAddress, Instant latestDeliveryDate, Party freightCompany, String trackingCode, boolean buyerSigned, boolean freightSigned) {
+        this(seller, orderState, buyer, orderId, productId, scaledQuantity, currency, priceQuantity, shippingCostsQuantity, shippingAddress, latestDeliveryDate, freightCompany, trackingCode, buyerSigned, freightSigned, null, null);
+    }
+
+    /* Reads orders that were serialized before the compact representation, i.e. with a floating-point quantity and
+     * a currency per amount. */
+    @DeprecatedConstructorForDeserialization(version = 1)
+    public OrderState(Party seller, State orderState, Party buyer, UniqueIdentifier orderId, int productId, double quantity, Amount<Currency> price, Amount<Currency> shippingCosts, String shippingAddress, Instant latestDeliveryDate, Party freightCompany, String trackingCode, boolean buyerSigned, boolean freightSigned) {
+        this(seller, orderState, buyer, orderId, productId, scale(quantity), sharedCurrency(price, shippingCosts), price.getQuantity(), shippingCosts.getQuantity(), shippingAddress, latestDeliveryDate, freightCompany, trackingCode, buyerSigned, freightSigned, null, null);
     }
 
     public OrderState(Party seller, Party buyer, String orderId, int productId, double quantity, Amount<Currency> price, Amount<Currency> shippingCosts, String shippingAddress, Instant latestDeliveryDate) {
-        this.seller = seller;
-        this.buyer = buyer;
-        this.orderId = new UniqueIdentifier(orderId);
-        this.productId = productId;
-        this.quantity = quantity;
-        this.price = price;
-        this.shippingCosts = shippingCosts;
-        this.shippingAddress = shippingAddress;
-        this.latestDeliveryDate = latestDeliveryDate;
-        this.orderState = State.CREATED;
+        this(seller, null, buyer, null, orderId, productId, quantity, price, shippingCosts, shippingAddress, latestDeliveryDate);
+    }
+
+    /* Creates an order between accounts: the seller and the buyer are the nodes that host the accounts, and the
+     * accounts are fresh keys that the nodes issued for them. Either account may be null. */
+    public OrderState(Party seller, AnonymousParty sellerAccount, Party buyer, AnonymousParty buyerAccount, String orderId, int productId, double quantity, Amount<Currency> price, Amount<Currency> shippingCosts, String shippingAddress, Instant latestDeliveryDate) {
+        this(seller, State.CREATED, buyer, new UniqueIdentifier(orderId), productId, scale(quantity), sharedCurrency(price, shippingCosts), price.getQuantity(), shippingCosts.getQuantity(), shippingAddress, latestDeliveryDate, null, null, false, false, sellerAccount, buyerAccount);
+    }
+
+    // Converts a quantity to its fixed-point number. A quantity with more decimal places than QUANTITY_SCALE is
+    // rejected rather than rounded, so that no order silently changes its quantity.
+    public static long scale(double quantity) {
+        try {
+            return BigDecimal.valueOf(quantity).setScale(QUANTITY_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("The quantity " + quantity + " must be exact to " + QUANTITY_SCALE + " decimal places.", e);
+        }
+    }
+
+    private static Currency sharedCurrency(Amount<Currency> price, Amount<Currency> shippingCosts) {
+        if (!price.getToken().equals(shippingCosts.getToken())) {
+            throw new IllegalArgumentException("The price and the shipping costs must be given in the same currency.");
+        }
+        return price.getToken();
+    }
+
+    private static String intern(String value) {
+        return value != null ? STRINGS.intern(value) : null;
     }
 
     //getters
@@ -111,12 +170,24 @@ public class OrderState implements LinearState {
         return productId;
     }
 
+    public long getScaledQuantity() {
+        return scaledQuantity;
+    }
+
     public double getQuantity() {
-        return quantity;
+        return scaledQuantity / QUANTITY_FACTOR;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public long getPriceQuantity() {
+        return priceQuantity;
     }
 
     public Amount<Currency> getPrice() {
-        return price;
+        return new Amount<>(priceQuantity, currency);
     }
 
     public String getShippingAddress() {
@@ -135,8 +206,12 @@ public class OrderState implements LinearState {
         this.freightCompany = freightCompany;
     }
 
+    public long getShippingCostsQuantity() {
+        return shippingCostsQuantity;
+    }
+
     public Amount<Currency> getShippingCosts() {
-        return shippingCosts;
+        return new Amount<>(shippingCostsQuantity, currency);
     }
 
     public String getTrackingCode() {
@@ -144,7 +219,7 @@ public class OrderState implements LinearState {
     }
 
     public void setTrackingCode(String trackingCode) {
-        this.trackingCode = trackingCode;
+        this.trackingCode = intern(trackingCode);
     }
 
     public boolean isBuyerSigned() {
@@ -163,15 +238,64 @@ public class OrderState implements LinearState {
         this.freightSigned = freightSigned;
     }
 
+    public AnonymousParty getSellerAccount() {
+        return sellerAccount;
+    }
+
+    public AnonymousParty getBuyerAccount() {
+        return buyerAccount;
+    }
+
     /* This method will indicate who are the participants and required signers when
-     * this state is used in a transaction. */
+     * this state is used in a transaction. The keys of the accounts make the order relevant to the accounts, so that
+     * the vault of their hosts can be queried per account. */
     @NotNull
     @Override
     public List<AbstractParty> getParticipants() {
-        return Stream.of(this.seller, this.buyer, this.freightCompany).filter(Objects::nonNull).collect(Collectors.toList());
+        return Stream.of(this.seller, this.buyer, this.freightCompany, this.sellerAccount, this.buyerAccount).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /* An order that has not been delivered when its latest delivery date is reached expires automatically. The
+     * scheduled flow lives in the workflows module, which is why it is referenced by name. */
+    @Nullable
+    @Override
+    public ScheduledActivity nextScheduledActivity(@NotNull StateRef thisStateRef, @NotNull FlowLogicRefFactory flowLogicRefFactory) {
+        if (!canExpire()) {
+            return null;
+        }
+        return new ScheduledActivity(flowLogicRefFactory.create("com.template.flows.ExpireOrder", thisStateRef), this.latestDeliveryDate);
+    }
+
+    // Whether the order can still be moved to PASSED once its latest delivery date is reached.
+    public boolean canExpire() {
+        return Arrays.asList(State.CREATED, State.CONFIRMED, State.SHIPPED).contains(this.orderState) && !this.freightSigned;
+    }
+
+    @NotNull
+    @Override
+    public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+        if (schema instanceof OrderSchemaV1) {
+            return new OrderSchemaV1.PersistentOrder(
+                    this.orderId.getExternalId(),
+                    this.orderId.getId(),
+                    this.orderState.name(),
+                    this.buyer.getName().toString(),
+                    this.seller.getName().toString(),
+                    this.freightCompany != null ? this.freightCompany.getName().toString() : null,
+                    this.productId,
+                    this.latestDeliveryDate);
+        } else {
+            throw new IllegalArgumentException("Unrecognised schema " + schema);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterable<MappedSchema> supportedSchemas() {
+        return ImmutableList.of(new OrderSchemaV1());
     }
 
     public OrderState copy() {
-        return new OrderState(this.seller, this.orderState, this.buyer, this.orderId, this.productId, this.quantity, this.price, this.shippingCosts, this.shippingAddress, this.latestDeliveryDate, this.freightCompany, this.trackingCode, this.buyerSigned, this.freightSigned);
+        return new OrderState(this.seller, this.orderState, this.buyer, this.orderId, this.productId, this.scaledQuantity, this.currency, this.priceQuantity, this.shippingCostsQuantity, this.shippingAddress, this.latestDeliveryDate, this.freightCompany, this.trackingCode, this.buyerSigned, this.freightSigned, this.sellerAccount, this.buyerAccount);
     }
 }
\ No newline at end of file
@@ -1,13 +1,300 @@
 package com.template.contracts;
 
+import com.google.common.collect.ImmutableList;
+import com.template.states.OrderState;
+import net.corda.core.contracts.Amount;
+import net.corda.core.identity.AnonymousParty;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.testing.core.TestIdentity;
 import net.corda.testing.node.MockServices;
 import org.junit.Test;
 
+import java.security.PublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static net.corda.testing.node.NodeTestUtils.ledger;
+
 public class ContractTests {
-    private final MockServices ledgerServices = new MockServices();
+    private final TestIdentity seller = new TestIdentity(new CordaX500Name("Seller", "Berlin", "DE"));
+    private final TestIdentity buyer = new TestIdentity(new CordaX500Name("Buyer", "Vienna", "AT"));
+    private final TestIdentity freightCompany = new TestIdentity(new CordaX500Name("Freight", "Linz", "AT"));
+    private final MockServices ledgerServices = new MockServices(ImmutableList.of("com.template.contracts"), seller, buyer);
+    private final List<PublicKey> signers = ImmutableList.of(seller.getPublicKey(), buyer.getPublicKey());
+    private final AnonymousParty sellerAccount = new AnonymousParty(new TestIdentity(new CordaX500Name("SellerAccount", "Berlin", "DE")).getPublicKey());
+    private final AnonymousParty buyerAccount = new AnonymousParty(new TestIdentity(new CordaX500Name("BuyerAccount", "Vienna", "AT")).getPublicKey());
+
+    private OrderState order(String orderId) {
+        return new OrderState(seller.getParty(), buyer.getParty(), orderId, 100, 2.0, Amount.parseCurrency("10 EUR"), Amount.parseCurrency("2 EUR"), "Karlsplatz 13, 1040 Wien", Instant.now().plus(1, ChronoUnit.DAYS));
+    }
+
+    private OrderState accountOrder(String orderId, AnonymousParty buyerAccount) {
+        return new OrderState(seller.getParty(), sellerAccount, buyer.getParty(), buyerAccount, orderId, 100, 2.0, Amount.parseCurrency("10 EUR"), Amount.parseCurrency("2 EUR"), "Karlsplatz 13, 1040 Wien", Instant.now().plus(1, ChronoUnit.DAYS));
+    }
+
+    private OrderState shipped(String orderId) {
+        OrderState shipped = withState(order(orderId), OrderState.State.SHIPPED);
+        shipped.setFreightCompany(freightCompany.getParty());
+        shipped.setTrackingCode("TRACK-" + orderId);
+        return shipped;
+    }
+
+    private OrderState delivered(OrderState shipped, boolean buyerSigned, boolean freightSigned) {
+        OrderState delivered = withState(shipped, OrderState.State.DELIVERED);
+        delivered.setBuyerSigned(buyerSigned);
+        delivered.setFreightSigned(freightSigned);
+        return delivered;
+    }
+
+    private OrderState withState(OrderState order, OrderState.State state) {
+        OrderState copy = order.copy();
+        copy.setOrderState(state);
+        return copy;
+    }
+
+    @Test
+    public void createWithMultipleOutputsVerifies() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.output(TradeFinanceContract.ID, order("1"));
+                tx.output(TradeFinanceContract.ID, order("2"));
+                tx.command(signers, new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void createWithDuplicateOrderIdFails() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.output(TradeFinanceContract.ID, order("1"));
+                tx.output(TradeFinanceContract.ID, order("1"));
+                tx.command(signers, new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.failsWith("Order IDs must be unique within a transaction.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void createWithOrderIdOfMovedOrderFails() {
+        OrderState existing = order("1");
+        OrderState created = order("1");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, existing);
+                tx.output(TradeFinanceContract.ID, withState(existing, OrderState.State.CONFIRMED));
+                tx.output(TradeFinanceContract.ID, created);
+                tx.command(signers, new TradeFinanceContract.Commands.Confirm(buyer.getParty(), ImmutableList.of(existing.getLinearId())));
+                tx.command(signers, new TradeFinanceContract.Commands.Create(seller.getParty(), ImmutableList.of(created.getLinearId())));
+                return tx.failsWith("Order IDs must be unique within a transaction.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void createWithDuplicateOrderIdInBatchFails() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                // The orders have different linear IDs, only their order IDs are the same.
+                tx.output(TradeFinanceContract.ID, order("1"));
+                tx.output(TradeFinanceContract.ID, order("2"));
+                tx.output(TradeFinanceContract.ID, order("1"));
+                tx.command(signers, new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.failsWith("Order IDs must be unique within a transaction.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void createWithInexactQuantityFails() {
+        // 2^53 + 1 thousandths cannot be read back exactly as a double.
+        OrderState order = order("1");
+        OrderState inexact = new OrderState(order.getSeller(), OrderState.State.CREATED, order.getBuyer(), order.getLinearId(), order.getProductId(), (1L << 53) + 1, order.getCurrency(), order.getPriceQuantity(), order.getShippingCostsQuantity(), order.getShippingAddress(), order.getLatestDeliveryDate(), null, null, false, false, null, null);
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.output(TradeFinanceContract.ID, inexact);
+                tx.command(signers, new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.failsWith("The quantity must be exact to 3 decimal places.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void createChecksEveryOutput() {
+        OrderState invalid = new OrderState(seller.getParty(), buyer.getParty(), "2", 100, 2.0, Amount.parseCurrency("10 EUR"), Amount.parseCurrency("20 EUR"), "Karlsplatz 13, 1040 Wien", Instant.now());
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.output(TradeFinanceContract.ID, order("1"));
+                tx.output(TradeFinanceContract.ID, invalid);
+                tx.command(signers, new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.failsWith("The price must be greater or equal to the shipping costs.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void confirmMultipleOrdersVerifies() {
+        OrderState first = order("1");
+        OrderState second = order("2");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, first);
+                tx.input(TradeFinanceContract.ID, second);
+                tx.output(TradeFinanceContract.ID, withState(first, OrderState.State.CONFIRMED));
+                tx.output(TradeFinanceContract.ID, withState(second, OrderState.State.CONFIRMED));
+                tx.command(signers, new TradeFinanceContract.Commands.Confirm(buyer.getParty()));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void differentCommandsPerOrderVerify() {
+        OrderState first = order("1");
+        OrderState second = order("2");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, first);
+                tx.input(TradeFinanceContract.ID, second);
+                tx.output(TradeFinanceContract.ID, withState(first, OrderState.State.CONFIRMED));
+                tx.output(TradeFinanceContract.ID, withState(second, OrderState.State.CANCELLED));
+                tx.command(signers, new TradeFinanceContract.Commands.Confirm(buyer.getParty(), ImmutableList.of(first.getLinearId())));
+                tx.command(signers, new TradeFinanceContract.Commands.Cancel(buyer.getParty(), ImmutableList.of(second.getLinearId())));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void orderWithoutOwnCommandFails() {
+        OrderState first = order("1");
+        OrderState second = order("2");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, first);
+                tx.input(TradeFinanceContract.ID, second);
+                tx.output(TradeFinanceContract.ID, withState(first, OrderState.State.CONFIRMED));
+                tx.output(TradeFinanceContract.ID, withState(second, OrderState.State.CONFIRMED));
+                tx.command(signers, new TradeFinanceContract.Commands.Confirm(buyer.getParty(), ImmutableList.of(first.getLinearId())));
+                return tx.failsWith("Exactly one command must refer to the order " + second.getLinearId() + ".");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void invalidTransitionInBatchFails() {
+        OrderState first = order("1");
+        OrderState second = withState(order("2"), OrderState.State.CANCELLED);
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, first);
+                tx.input(TradeFinanceContract.ID, second);
+                tx.output(TradeFinanceContract.ID, withState(first, OrderState.State.CONFIRMED));
+                tx.output(TradeFinanceContract.ID, withState(second, OrderState.State.CONFIRMED));
+                tx.command(signers, new TradeFinanceContract.Commands.Confirm(buyer.getParty()));
+                return tx.failsWith("Function cannot be called at this state: CANCELLED");
+            });
+            return null;
+        });
+    }
 
     @Test
-    public void dummyTest() {
+    public void accountOrderSignedByAccountsVerifies() {
+        OrderState order = accountOrder("1", buyerAccount);
+        List<PublicKey> accountSigners = ImmutableList.of(seller.getPublicKey(), buyer.getPublicKey(), sellerAccount.getOwningKey(), buyerAccount.getOwningKey());
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.output(TradeFinanceContract.ID, order);
+                tx.command(accountSigners, new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.verifies();
+            });
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, order);
+                tx.output(TradeFinanceContract.ID, withState(order, OrderState.State.CONFIRMED));
+                tx.command(accountSigners, new TradeFinanceContract.Commands.Confirm(buyer.getParty()));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void accountOrderWithoutAccountSignatureFails() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.output(TradeFinanceContract.ID, accountOrder("1", buyerAccount));
+                tx.command(ImmutableList.of(seller.getPublicKey(), buyer.getPublicKey(), sellerAccount.getOwningKey()), new TradeFinanceContract.Commands.Create(seller.getParty()));
+                return tx.failsWith("The buyer account must sign.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void changingTheAccountFails() {
+        OrderState order = accountOrder("1", null);
+        OrderState changed = new OrderState(order.getSeller(), OrderState.State.CONFIRMED, order.getBuyer(), order.getLinearId(), order.getProductId(), order.getScaledQuantity(), order.getCurrency(), order.getPriceQuantity(), order.getShippingCostsQuantity(), order.getShippingAddress(), order.getLatestDeliveryDate(), null, null, false, false, sellerAccount, buyerAccount);
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, order);
+                tx.output(TradeFinanceContract.ID, changed);
+                tx.command(ImmutableList.of(seller.getPublicKey(), buyer.getPublicKey(), sellerAccount.getOwningKey(), buyerAccount.getOwningKey()), new TradeFinanceContract.Commands.Confirm(buyer.getParty()));
+                return tx.failsWith("The buyer account of an order cannot change.");
+            });
+            return null;
+        });
+    }
 
+    @Test
+    public void jointArrivalSigningVerifies() {
+        OrderState order = shipped("1");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, order);
+                tx.output(TradeFinanceContract.ID, delivered(order, true, true));
+                tx.command(ImmutableList.of(seller.getPublicKey(), buyer.getPublicKey(), freightCompany.getPublicKey()), new TradeFinanceContract.Commands.SignJointly(buyer.getParty()));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void jointArrivalSigningWithoutFreightSignatureFails() {
+        OrderState order = shipped("1");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, order);
+                tx.output(TradeFinanceContract.ID, delivered(order, true, true));
+                tx.command(signers, new TradeFinanceContract.Commands.SignJointly(buyer.getParty()));
+                return tx.failsWith("The buyer and the freight company must both sign.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void jointArrivalSigningWithoutBothFlagsFails() {
+        OrderState order = shipped("1");
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(TradeFinanceContract.ID, order);
+                tx.output(TradeFinanceContract.ID, delivered(order, true, false));
+                tx.command(ImmutableList.of(seller.getPublicKey(), buyer.getPublicKey(), freightCompany.getPublicKey()), new TradeFinanceContract.Commands.SignJointly(freightCompany.getParty()));
+                return tx.failsWith("The arrival must be signed by the buyer and the freight company.");
+            });
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
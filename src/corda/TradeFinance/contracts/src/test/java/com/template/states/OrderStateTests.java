@@ -0,0 +1,79 @@
+package com.template.states;
+
+import com.google.common.io.ByteStreams;
+import net.corda.core.contracts.Amount;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.serialization.SerializationFactory;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.testing.core.SerializationEnvironmentRule;
+import net.corda.testing.core.TestIdentity;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderStateTests {
+    private final TestIdentity seller = new TestIdentity(new CordaX500Name("Seller", "Berlin", "DE"));
+    private final TestIdentity buyer = new TestIdentity(new CordaX500Name("Buyer", "Vienna", "AT"));
+
+    @Rule
+    public final SerializationEnvironmentRule serializationEnvironment = new SerializationEnvironmentRule();
+
+    private OrderState deserialize(byte[] bytes) {
+        SerializationFactory factory = SerializationFactory.Companion.getDefaultFactory();
+        return factory.deserialize(new OpaqueBytes(bytes), OrderState.class, factory.getDefaultContext());
+    }
+
+    @Test
+    public void compactOrderRoundTrips() {
+        OrderState order = new OrderState(seller.getParty(), buyer.getParty(), "1", 100, 2.5, Amount.parseCurrency("10.50 EUR"), Amount.parseCurrency("2 EUR"), "Karlsplatz 13, 1040 Wien", Instant.parse("2099-09-30T00:00:00Z"));
+        SerializationFactory factory = SerializationFactory.Companion.getDefaultFactory();
+        OrderState copy = deserialize(factory.serialize(order, factory.getDefaultContext()).getBytes());
+
+        assertEquals(order.getLinearId(), copy.getLinearId());
+        assertEquals(2.5, copy.getQuantity(), 0.0);
+        assertEquals(Amount.parseCurrency("10.50 EUR"), copy.getPrice());
+        assertEquals(Amount.parseCurrency("2 EUR"), copy.getShippingCosts());
+        assertEquals("Karlsplatz 13, 1040 Wien", copy.getShippingAddress());
+    }
+
+    // The order was serialized with the previous representation, i.e. a floating-point quantity and a currency per amount.
+    @Test
+    public void orderOfPreviousVersionDeserializes() throws IOException {
+        byte[] bytes;
+        try (InputStream input = getClass().getResourceAsStream("/evolution/OrderState.v1.bin")) {
+            bytes = ByteStreams.toByteArray(input);
+        }
+        OrderState order = deserialize(bytes);
+
+        assertEquals("1", order.getLinearId().getExternalId());
+        assertEquals(OrderState.State.SHIPPED, order.getOrderState());
+        assertEquals(2.5, order.getQuantity(), 0.0);
+        assertEquals(Amount.parseCurrency("10 EUR"), order.getPrice());
+        assertEquals(Amount.parseCurrency("2 EUR"), order.getShippingCosts());
+        assertEquals("TRACK-1", order.getTrackingCode());
+        assertEquals(Instant.parse("2099-09-30T00:00:00Z"), order.getLatestDeliveryDate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentCurrenciesAreRejected() {
+        new OrderState(seller.getParty(), buyer.getParty(), "1", 100, 2.0, Amount.parseCurrency("10 EUR"), Amount.parseCurrency("2 USD"), "Karlsplatz 13, 1040 Wien", Instant.now());
+    }
+
+    @Test
+    public void quantityWithThreeDecimalPlacesIsExact() {
+        OrderState order = new OrderState(seller.getParty(), buyer.getParty(), "1", 100, 2.001, Amount.parseCurrency("10 EUR"), Amount.parseCurrency("2 EUR"), "Karlsplatz 13, 1040 Wien", Instant.now());
+
+        assertEquals(2001, order.getScaledQuantity());
+        assertEquals(2.001, order.getQuantity(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quantityWithMoreDecimalPlacesIsRejected() {
+        new OrderState(seller.getParty(), buyer.getParty(), "1", 100, 2.0005, Amount.parseCurrency("10 EUR"), Amount.parseCurrency("2 EUR"), "Karlsplatz 13, 1040 Wien", Instant.now());
+    }
+}
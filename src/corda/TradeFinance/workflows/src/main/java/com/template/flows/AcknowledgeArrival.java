@@ -0,0 +1,45 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.ArrivalAcknowledgements;
+import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+
+// ********************
+// * Acknowledge flow *
+// ********************
+/* Acknowledges the arrival of a shipped order on behalf of the buyer or the freight company, without a transaction.
+ * The other of the two can then sign the arrival for both with SignArrivalJointly, which delivers the order in a single
+ * transaction instead of the two SignArrival transactions. */
+@StartableByRPC
+public class AcknowledgeArrival extends FlowLogic<String> {
+
+    //private variables
+    private final String orderId;
+
+    //public constructor
+    public AcknowledgeArrival(String orderId) {
+        this.orderId = orderId;
+    }
+
+    @Suspendable
+    @Override
+    public String call() throws FlowException {
+        // Step 1. Check that the order has been shipped and that we are the buyer or the freight company.
+        OrderState order = DataUtils.getOrder(getServiceHub(), this.orderId).getState().getData();
+        if (order.getOrderState() != OrderState.State.SHIPPED) {
+            throw new IllegalArgumentException("Function cannot be called at this state: " + order.getOrderState());
+        }
+        if (!getOurIdentity().equals(order.getBuyer()) && !getOurIdentity().equals(order.getFreightCompany())) {
+            throw new IllegalArgumentException("Only the buyer and freight company are allowed to acknowledge the arrival.");
+        }
+
+        // Step 2. Remember the acknowledgement until the other party asks us to co-sign the arrival.
+        getServiceHub().cordaService(ArrivalAcknowledgements.class).acknowledge(this.orderId);
+
+        return "The arrival of the order with ID '" + this.orderId + "' has been acknowledged by '" + getOurIdentity().getName() + "'";
+    }
+}
@@ -1,6 +1,7 @@
 package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
+import com.template.utils.DataUtils;
 import net.corda.core.flows.*;
 import net.corda.core.transactions.SignedTransaction;
 
@@ -33,8 +34,9 @@ public class CancelOrderResponder extends FlowLogic<Void> {
                  * allows us to define these additional checks. If any of these conditions are not met,
                  * we will not sign the transaction - even if the transaction and its signatures are contractually valid.
                  * ----------
-                 * For this cordapp, we will not implement any additional checks.
+                 * For this cordapp, we only lock the orders the transaction consumes against our own flows.
                  * */
+                DataUtils.reserveInputs(getServiceHub(), stx, getRunId().getUuid());
             }
         });
         //Stored the transaction into data base.
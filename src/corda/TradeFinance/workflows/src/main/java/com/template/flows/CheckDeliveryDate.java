@@ -2,8 +2,10 @@ package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
 import com.template.states.OrderState;
 import com.template.utils.DataUtils;
+import com.template.utils.IdentityUtils;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.flows.*;
 import net.corda.core.identity.AbstractParty;
@@ -12,6 +14,7 @@ import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
 
+import java.security.PublicKey;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -20,7 +23,7 @@ import java.util.stream.Collectors;
 // ******************
 @InitiatingFlow
 @StartableByRPC
-public class CheckDeliveryDate extends FlowLogic<String> {
+public class CheckDeliveryDate extends MeasuredFlow {
     private final ProgressTracker progressTracker = tracker();
 
     private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating a CheckDeliveryDate transaction");
@@ -57,14 +60,14 @@ public class CheckDeliveryDate extends FlowLogic<String> {
 
     @Suspendable
     @Override
-    public String call() throws FlowException {
-        // Step 1. Check if an order with this ID already exists
-        StateAndRef<OrderState> inputOrderStateAndRef = DataUtils.getOrder(getServiceHub(), this.orderId);
+    protected String run() throws FlowException {
+        // Step 1. Check if an order with this ID already exists and lock it against the other flows of this node
+        StateAndRef<OrderState> inputOrderStateAndRef = DataUtils.getOrderForUpdate(getServiceHub(), this.orderId, getRunId().getUuid());
         OrderState inputOrderState = inputOrderStateAndRef.getState().getData();
 
         // Generate State for transfer
         // Step 2. Get a reference to the notary service on our network and our key pair.
-        final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
 
         // Step 3. Compose the State that carries the order data
         progressTracker.setCurrentStep(GENERATING_TRANSACTION);
@@ -79,18 +82,18 @@ public class CheckDeliveryDate extends FlowLogic<String> {
         builder.addOutputState(outputOrderState);
         builder.addCommand(new TradeFinanceContract.Commands.CheckDate(getOurIdentity()), outputOrderState.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
 
-        // Step 6. Verify and sign it with our KeyPair.
+        // Step 6. Verify and sign it with our KeyPair and the keys of the accounts we host.
         progressTracker.setCurrentStep(SIGNING_TRANSACTION);
         builder.verify(getServiceHub());
-        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder);
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
 
         // Step 7. Collect the other party's signature using the SignTransactionFlow.
         progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
-        List<Party> otherParties = outputOrderState.getParticipants().stream().map(el -> (Party) el).collect(Collectors.toList());
-        otherParties.remove(getOurIdentity());
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), outputOrderState.getParticipants());
         List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
 
-        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions));
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
 
         // Step 8. Assuming no exceptions, we can now finalise the transaction
         progressTracker.setCurrentStep(FINALISING_TRANSACTION);
@@ -0,0 +1,169 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.r3.corda.lib.accounts.contracts.states.AccountInfo;
+import com.r3.corda.lib.accounts.workflows.services.KeyManagementBackedAccountService;
+import com.r3.corda.lib.ci.workflows.SyncKeyMappingFlow;
+import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
+import com.template.services.OrderIdRegistry;
+import com.template.states.OrderState;
+import com.template.utils.IdentityUtils;
+import net.corda.core.contracts.Amount;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.AnonymousParty;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// ******************
+// * Initiator flow *
+// ******************
+/* Creates an order between accounts: an account of our node sells to an account of the buyer node. Both accounts hold
+ * a fresh key for the order, which the node that hosts the account takes from its key pool, and the other nodes learn
+ * which node hosts the keys before they sign. The buyer account must have been shared with our node, e.g. with
+ * ShareAccountTo. Either account may be null, in which case the node itself is the seller or the buyer. */
+@InitiatingFlow
+@StartableByRPC
+public class CreateAccountOrder extends MeasuredFlow {
+    private final ProgressTracker progressTracker = tracker();
+
+    private static final ProgressTracker.Step REQUESTING_KEYS = new ProgressTracker.Step("Requesting fresh keys for the accounts.");
+    private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating a CreateAccountOrder transaction");
+    private static final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+    private static final ProgressTracker.Step SYNCING_KEYS = new ProgressTracker.Step("Sharing the hosts of the account keys with the other parties.");
+    private static final ProgressTracker.Step COLLECTING_SIGNATURES = new ProgressTracker.Step("Collecting the signatures of the other parties.");
+    private static final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Recording transaction") {
+        @Override
+        public ProgressTracker childProgressTracker() {
+            return FinalityFlow.tracker();
+        }
+    };
+
+    private static ProgressTracker tracker() {
+        return new ProgressTracker(
+                REQUESTING_KEYS,
+                GENERATING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                SYNCING_KEYS,
+                COLLECTING_SIGNATURES,
+                FINALISING_TRANSACTION
+        );
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    //private variables
+    private Party seller;
+    private String sellerAccount;
+    private String buyer;
+    private String buyerAccount;
+    private String orderId;
+    private int productId;
+    private double quantity;
+    private Amount<Currency> price;
+    private Amount<Currency> shippingCosts;
+    private String shippingAddress;
+    private Instant latestDeliveryDate;
+
+    //public constructor
+    public CreateAccountOrder(String sellerAccount, String buyer, String buyerAccount, String orderId, int productId, double quantity, String price, String shippingCosts, String shippingAddress, String latestDeliveryDate) {
+        this.sellerAccount = sellerAccount;
+        this.buyer = buyer;
+        this.buyerAccount = buyerAccount;
+        this.orderId = orderId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.price = Amount.parseCurrency(price);
+        this.shippingCosts = Amount.parseCurrency(shippingCosts);
+        this.shippingAddress = shippingAddress;
+        this.latestDeliveryDate = LocalDate.parse(latestDeliveryDate).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    @Suspendable
+    @Override
+    protected String run() throws FlowException {
+        this.seller = getOurIdentity();
+
+        // Step 1. Reserve the order ID, which fails if an order with this ID already exists or is being created
+        OrderIdRegistry registry = getServiceHub().cordaService(OrderIdRegistry.class);
+        List<String> orderIds = Collections.singletonList(this.orderId);
+        registry.reserve(orderIds, getRunId());
+        try {
+            String result = issue();
+            registry.recorded(orderIds, getRunId());
+            return result;
+        } catch (FlowException | RuntimeException e) {
+            registry.release(orderIds, getRunId());
+            throw e;
+        }
+    }
+
+    @Suspendable
+    private String issue() throws FlowException {
+        // Step 2. Get a reference to the notary service on our network and our key pair.
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
+
+        // Step 3. Take a fresh key for every account from the key pool of the node that hosts it.
+        progressTracker.setCurrentStep(REQUESTING_KEYS);
+        Party buyerParty = getServiceHub().cordaService(IdentityCache.class).getParty(this.buyer);
+        AnonymousParty sellerKey = this.sellerAccount != null ? subFlow(new RequestAccountKey(account(this.sellerAccount, this.seller))) : null;
+        AnonymousParty buyerKey = this.buyerAccount != null ? subFlow(new RequestAccountKey(account(this.buyerAccount, buyerParty))) : null;
+
+        // Step 4. Compose the State that carries the order data.
+        progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+        final OrderState output = new OrderState(this.seller, sellerKey, buyerParty, buyerKey, this.orderId, this.productId, this.quantity, this.price, this.shippingCosts, this.shippingAddress, this.latestDeliveryDate);
+
+        // Step 5. Create a new TransactionBuilder object.
+        final TransactionBuilder builder = new TransactionBuilder(notary);
+
+        // Step 6. Add the order as an output state, as well as a command to the transaction builder.
+        builder.addOutputState(output, TradeFinanceContract.ID);
+        builder.addCommand(new TradeFinanceContract.Commands.Create(getOurIdentity()), output.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
+
+        // Step 7. Verify and sign it with our KeyPair and the keys of the accounts we host.
+        progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+        builder.verify(getServiceHub());
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
+
+        // Step 8. Tell the other parties which nodes host the account keys, so that they can act on the order later on.
+        progressTracker.setCurrentStep(SYNCING_KEYS);
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), output.getParticipants());
+        List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
+        for (FlowSession session : sessions) {
+            subFlow(new SyncKeyMappingFlow(session, ptx.getTx()));
+        }
+
+        // Step 9. Collect the other party's signature using the SignTransactionFlow.
+        progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
+
+        // Step 10. Assuming no exceptions, we can now finalise the transaction
+        progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+        subFlow(new FinalityFlow(stx, sessions));
+
+        return "Order with ID '" + this.orderId + "' of buyer '" + buyerParty.getName() + "' added.";
+    }
+
+    // Looks up an account by its name and the node that hosts it, as accounts of different nodes may share a name.
+    private AccountInfo account(String name, Party host) {
+        return getServiceHub().cordaService(KeyManagementBackedAccountService.class).accountInfo(name).stream()
+                .map(account -> account.getState().getData())
+                .filter(account -> account.getHost().equals(host))
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("The account " + name + " of " + host.getName() + " is unknown."));
+    }
+}
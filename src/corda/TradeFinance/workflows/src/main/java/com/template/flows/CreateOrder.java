@@ -2,18 +2,19 @@ package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
+import com.template.services.OrderIdRegistry;
 import com.template.states.OrderState;
+import com.template.utils.IdentityUtils;
 import net.corda.core.contracts.Amount;
-import net.corda.core.contracts.StateAndRef;
 import net.corda.core.flows.*;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
-import net.corda.core.node.services.Vault;
-import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
 
+import java.security.PublicKey;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -25,7 +26,7 @@ import java.util.stream.Collectors;
 // ******************
 @InitiatingFlow
 @StartableByRPC
-public class CreateOrder extends FlowLogic<String> {
+public class CreateOrder extends MeasuredFlow {
     private final ProgressTracker progressTracker = tracker();
 
     private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating a CreateOrder transaction");
@@ -77,22 +78,31 @@ public class CreateOrder extends FlowLogic<String> {
 
     @Suspendable
     @Override
-    public String call() throws FlowException {
+    protected String run() throws FlowException {
         this.seller = getOurIdentity();
 
-        // Step 1. Check if an order with this ID already exists
-        QueryCriteria.LinearStateQueryCriteria queryCriteria = new QueryCriteria.LinearStateQueryCriteria().withExternalId(Collections.singletonList(this.orderId));
-        List<StateAndRef<OrderState>> results = getServiceHub().getVaultService().queryBy(OrderState.class, queryCriteria).getStates();
-        if (results.size() != 0) {
-            throw new IllegalArgumentException("An order with ID " + this.orderId + " already exists.");
+        // Step 1. Reserve the order ID, which fails if an order with this ID already exists or is being created
+        OrderIdRegistry registry = getServiceHub().cordaService(OrderIdRegistry.class);
+        List<String> orderIds = Collections.singletonList(this.orderId);
+        registry.reserve(orderIds, getRunId());
+        try {
+            String result = issue();
+            registry.recorded(orderIds, getRunId());
+            return result;
+        } catch (FlowException | RuntimeException e) {
+            registry.release(orderIds, getRunId());
+            throw e;
         }
+    }
 
+    @Suspendable
+    private String issue() throws FlowException {
         // Step 2. Get a reference to the notary service on our network and our key pair.
-        final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
 
         // Step 3. Compose the State that carries the order data.
         progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-        Party buyerParty = getServiceHub().getIdentityService().partiesFromName(this.buyer, true).stream().findFirst().get();
+        Party buyerParty = getServiceHub().cordaService(IdentityCache.class).getParty(this.buyer);
         final OrderState output = new OrderState(this.seller, buyerParty, this.orderId, this.productId, this.quantity, this.price, this.shippingCosts, this.shippingAddress, this.latestDeliveryDate);
 
         // Step 4. Create a new TransactionBuilder object.
@@ -102,18 +112,18 @@ public class CreateOrder extends FlowLogic<String> {
         builder.addOutputState(output, TradeFinanceContract.ID);
         builder.addCommand(new TradeFinanceContract.Commands.Create(getOurIdentity()), output.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
 
-        // Step 6. Verify and sign it with our KeyPair.
+        // Step 6. Verify and sign it with our KeyPair and the keys of the accounts we host.
         progressTracker.setCurrentStep(SIGNING_TRANSACTION);
         builder.verify(getServiceHub());
-        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder);
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
 
         // Step 7. Collect the other party's signature using the SignTransactionFlow.
         progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
-        List<Party> otherParties = output.getParticipants().stream().map(el -> (Party) el).collect(Collectors.toList());
-        otherParties.remove(getOurIdentity());
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), output.getParticipants());
         List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
 
-        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions));
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
 
         // Step 8. Assuming no exceptions, we can now finalise the transaction
         progressTracker.setCurrentStep(FINALISING_TRANSACTION);
@@ -0,0 +1,185 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
+import com.template.services.OrderIdRegistry;
+import com.template.states.OrderState;
+import com.template.utils.IdentityUtils;
+import net.corda.core.contracts.Amount;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// ******************
+// * Initiator flow *
+// ******************
+/* Issues several orders for the same buyer in a single transaction, so that the signature round-trip and the
+ * notarisation are only paid once per batch instead of once per order. */
+@InitiatingFlow
+@StartableByRPC
+public class CreateOrders extends MeasuredFlow {
+    private final ProgressTracker progressTracker = tracker();
+
+    private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating a CreateOrders transaction");
+    private static final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+    private static final ProgressTracker.Step COLLECTING_SIGNATURES = new ProgressTracker.Step("Collecting the signatures of the other parties.");
+    private static final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Recording transaction") {
+        @Override
+        public ProgressTracker childProgressTracker() {
+            return FinalityFlow.tracker();
+        }
+    };
+
+    private static ProgressTracker tracker() {
+        return new ProgressTracker(
+                GENERATING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                COLLECTING_SIGNATURES,
+                FINALISING_TRANSACTION
+        );
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    //private variables
+    private final String buyer;
+    private final List<OrderSpec> orders;
+
+    //public constructor
+    public CreateOrders(String buyer, List<OrderSpec> orders) {
+        this.buyer = buyer;
+        this.orders = orders;
+    }
+
+    @Suspendable
+    @Override
+    protected String run() throws FlowException {
+        final Party seller = getOurIdentity();
+        if (this.orders.isEmpty()) {
+            throw new IllegalArgumentException("At least one order has to be given.");
+        }
+
+        // Step 1. Check that the order IDs are unique within the batch and reserve them, which fails if one of them
+        // already exists or is being created
+        List<String> orderIds = this.orders.stream().map(OrderSpec::getOrderId).collect(Collectors.toList());
+        if (new HashSet<>(orderIds).size() != orderIds.size()) {
+            throw new IllegalArgumentException("The order IDs of a batch must be unique.");
+        }
+        OrderIdRegistry registry = getServiceHub().cordaService(OrderIdRegistry.class);
+        registry.reserve(orderIds, getRunId());
+        try {
+            String result = issue(seller);
+            registry.recorded(orderIds, getRunId());
+            return result;
+        } catch (FlowException | RuntimeException e) {
+            registry.release(orderIds, getRunId());
+            throw e;
+        }
+    }
+
+    @Suspendable
+    private String issue(Party seller) throws FlowException {
+        // Step 2. Get a reference to the notary service on our network and our key pair.
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
+
+        // Step 3. Compose the States that carry the order data.
+        progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+        Party buyerParty = getServiceHub().cordaService(IdentityCache.class).getParty(this.buyer);
+        List<OrderState> outputs = this.orders.stream()
+                .map(spec -> new OrderState(seller, buyerParty, spec.getOrderId(), spec.getProductId(), spec.getQuantity(),
+                        Amount.parseCurrency(spec.getPrice()), Amount.parseCurrency(spec.getShippingCosts()), spec.getShippingAddress(),
+                        LocalDate.parse(spec.getLatestDeliveryDate()).atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .collect(Collectors.toList());
+
+        // Step 4. Create a new TransactionBuilder object.
+        final TransactionBuilder builder = new TransactionBuilder(notary);
+
+        // Step 5. Add the orders as output states, as well as a single command to the transaction builder.
+        outputs.forEach(output -> builder.addOutputState(output, TradeFinanceContract.ID));
+        List<AbstractParty> participants = outputs.get(0).getParticipants();
+        builder.addCommand(new TradeFinanceContract.Commands.Create(getOurIdentity()), participants.stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
+
+        // Step 6. Verify and sign it with our KeyPair and the keys of the accounts we host.
+        progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+        builder.verify(getServiceHub());
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
+
+        // Step 7. Collect the other party's signature using the SignTransactionFlow.
+        progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), participants);
+        List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
+
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
+
+        // Step 8. Assuming no exceptions, we can now finalise the transaction
+        progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+        subFlow(new FinalityFlow(stx, sessions));
+
+        return outputs.size() + " orders of buyer '" + buyerParty.getName() + "' added.";
+    }
+
+    /* Describes a single order of a batch. The values use the same format as the parameters of CreateOrder. */
+    @CordaSerializable
+    public static class OrderSpec {
+        private final String orderId;
+        private final int productId;
+        private final double quantity;
+        private final String price;
+        private final String shippingCosts;
+        private final String shippingAddress;
+        private final String latestDeliveryDate;
+
+        public OrderSpec(String orderId, int productId, double quantity, String price, String shippingCosts, String shippingAddress, String latestDeliveryDate) {
+            this.orderId = orderId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.price = price;
+            this.shippingCosts = shippingCosts;
+            this.shippingAddress = shippingAddress;
+            this.latestDeliveryDate = latestDeliveryDate;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public double getQuantity() {
+            return quantity;
+        }
+
+        public String getPrice() {
+            return price;
+        }
+
+        public String getShippingCosts() {
+            return shippingCosts;
+        }
+
+        public String getShippingAddress() {
+            return shippingAddress;
+        }
+
+        public String getLatestDeliveryDate() {
+            return latestDeliveryDate;
+        }
+    }
+}
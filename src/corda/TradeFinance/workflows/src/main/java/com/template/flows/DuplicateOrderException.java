@@ -0,0 +1,20 @@
+package com.template.flows;
+
+import net.corda.core.flows.FlowException;
+
+/**
+ * Thrown by CreateOrder and CreateOrders if an order with the same ID already exists or is being created by another
+ * flow of this node at the same time.
+ */
+public class DuplicateOrderException extends FlowException {
+    private final String orderId;
+
+    public DuplicateOrderException(String orderId) {
+        super("An order with ID " + orderId + " already exists.");
+        this.orderId = orderId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+}
@@ -0,0 +1,57 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.SchedulableFlow;
+import net.corda.core.node.services.Vault;
+
+import java.util.Collections;
+import java.util.List;
+
+// ******************
+// * Scheduled flow *
+// ******************
+/* Started by the node when the latest delivery date of an order is reached, see OrderState.nextScheduledActivity.
+ * Every participant schedules it, but only the buyer's node moves the order to PASSED. A node that leaves the overdue
+ * orders to ExpireOverdueOrders turns it off with expiry.scheduled = false in the CorDapp config. */
+@SchedulableFlow
+public class ExpireOrder extends FlowLogic<Void> {
+
+    //private variables
+    private final StateRef stateRef;
+
+    //public constructor
+    public ExpireOrder(StateRef stateRef) {
+        this.stateRef = stateRef;
+    }
+
+    @Suspendable
+    @Override
+    public Void call() throws FlowException {
+        CordappConfig config = getServiceHub().getAppContext().getConfig();
+        if (config.exists("expiry.scheduled") && !config.getBoolean("expiry.scheduled")) {
+            return null;
+        }
+
+        OrderState order = getServiceHub().<OrderState>toStateAndRef(this.stateRef).getState().getData();
+        if (!getOurIdentity().equals(order.getBuyer()) || !order.canExpire()) {
+            return null;
+        }
+
+        // The order may have been moved on since the activity was scheduled.
+        String orderId = order.getLinearId().getExternalId();
+        List<StateAndRef<OrderState>> current = DataUtils.getOrders(getServiceHub(), Collections.singletonList(orderId), Vault.StateStatus.UNCONSUMED);
+        if (current.isEmpty() || !current.get(0).getRef().equals(this.stateRef)) {
+            return null;
+        }
+
+        subFlow(new CheckDeliveryDate(orderId));
+        return null;
+    }
+}
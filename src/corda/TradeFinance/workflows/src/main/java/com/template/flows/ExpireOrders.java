@@ -0,0 +1,134 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
+import com.template.states.OrderState;
+import com.template.utils.IdentityUtils;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.NonEmptySet;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+// ******************
+// * Initiator flow *
+// ******************
+/* Moves several overdue orders to PASSED in a single transaction. Orders that were consumed in the meantime or can no
+ * longer expire are skipped, as are orders with other participants than the first order, since every participant gets
+ * every order of the transaction and has to sign it. */
+@InitiatingFlow
+@StartableByRPC
+@StartableByService
+public class ExpireOrders extends MeasuredFlow {
+    private final ProgressTracker progressTracker = tracker();
+
+    private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating an ExpireOrders transaction");
+    private static final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+    private static final ProgressTracker.Step COLLECTING_SIGNATURES = new ProgressTracker.Step("Collecting the signatures of the other parties.");
+    private static final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Recording transaction") {
+        @Override
+        public ProgressTracker childProgressTracker() {
+            return FinalityFlow.tracker();
+        }
+    };
+
+    private static ProgressTracker tracker() {
+        return new ProgressTracker(
+                GENERATING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                COLLECTING_SIGNATURES,
+                FINALISING_TRANSACTION
+        );
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    //private variables
+    private final List<StateRef> stateRefs;
+
+    //public constructor
+    public ExpireOrders(List<StateRef> stateRefs) {
+        this.stateRefs = stateRefs;
+    }
+
+    @Suspendable
+    @Override
+    protected String run() throws FlowException {
+        if (this.stateRefs.isEmpty()) {
+            return "0 orders moved to PASSED.";
+        }
+
+        // Step 1. Get the orders that are still unconsumed and overdue from the vault. Orders that another flow of this
+        // node is changing are skipped, the others are locked until this flow ends.
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED).withStateRefs(this.stateRefs)
+                .withSoftLockingCondition(new QueryCriteria.SoftLockingCondition(QueryCriteria.SoftLockingType.UNLOCKED_ONLY, Collections.emptyList()));
+        Instant now = Instant.now();
+        List<StateAndRef<OrderState>> inputs = getServiceHub().getVaultService()
+                .queryBy(OrderState.class, criteria, new PageSpecification(DEFAULT_PAGE_NUM, this.stateRefs.size())).getStates().stream()
+                .filter(input -> input.getState().getData().canExpire() && now.isAfter(input.getState().getData().getLatestDeliveryDate()))
+                .collect(Collectors.toList());
+        if (inputs.isEmpty()) {
+            return "0 orders moved to PASSED.";
+        }
+        Set<AbstractParty> participants = new HashSet<>(inputs.get(0).getState().getData().getParticipants());
+        inputs = inputs.stream().filter(input -> participants.equals(new HashSet<>(input.getState().getData().getParticipants())))
+                .collect(Collectors.toList());
+        getServiceHub().getVaultService().softLockReserve(getRunId().getUuid(), NonEmptySet.copyOf(inputs.stream().map(StateAndRef::getRef).collect(Collectors.toList())));
+
+        // Step 2. Get a reference to the notary service on our network and our key pair.
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
+
+        // Step 3. Compose the States that carry the order data
+        progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+        final TransactionBuilder builder = new TransactionBuilder(notary);
+        for (StateAndRef<OrderState> input : inputs) {
+            OrderState outputOrderState = input.getState().getData().copy();
+            outputOrderState.setOrderState(OrderState.State.PASSED);
+            builder.addInputState(input);
+            builder.addOutputState(outputOrderState);
+        }
+
+        // Step 4. Add a single command for all orders, signed by their participants.
+        builder.addCommand(new TradeFinanceContract.Commands.CheckDate(getOurIdentity()), participants.stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
+
+        // Step 5. Verify and sign it with our KeyPair and the keys of the accounts we host.
+        progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+        builder.verify(getServiceHub());
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
+
+        // Step 6. Collect the other parties' signatures using the SignTransactionFlow.
+        progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), participants);
+        List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
+
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
+
+        // Step 7. Assuming no exceptions, we can now finalise the transaction
+        progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+        subFlow(new FinalityFlow(stx, sessions));
+
+        return inputs.size() + " orders moved to PASSED.";
+    }
+}
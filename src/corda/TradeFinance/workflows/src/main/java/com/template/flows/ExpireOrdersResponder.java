@@ -0,0 +1,46 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.utils.DataUtils;
+import net.corda.core.flows.*;
+import net.corda.core.transactions.SignedTransaction;
+
+// ******************
+// * Responder flow *
+// ******************
+@InitiatedBy(ExpireOrders.class)
+public class ExpireOrdersResponder extends FlowLogic<Void> {
+
+    //private variable
+    private FlowSession counterpartySession;
+
+    //Constructor
+    public ExpireOrdersResponder(FlowSession counterpartySession) {
+        this.counterpartySession = counterpartySession;
+    }
+
+    @Suspendable
+    @Override
+    public Void call() throws FlowException {
+        SignedTransaction signedTransaction = subFlow(new SignTransactionFlow(counterpartySession) {
+            @Suspendable
+            @Override
+            protected void checkTransaction(SignedTransaction stx) throws FlowException {
+                /*
+                 * SignTransactionFlow will automatically verify the transaction and its signatures before signing it.
+                 * However, just because a transaction is contractually valid doesn't mean we necessarily want to sign.
+                 * What if we don't want to deal with the counterparty in question, or the value is too high,
+                 * or we're not happy with the transaction's structure? checkTransaction
+                 * allows us to define these additional checks. If any of these conditions are not met,
+                 * we will not sign the transaction - even if the transaction and its signatures are contractually valid.
+                 * ----------
+                 * For this cordapp, we only lock the orders the transaction consumes against our own flows.
+                 * */
+                DataUtils.reserveInputs(getServiceHub(), stx, getRunId().getUuid());
+            }
+        });
+        //Stored the transaction into data base.
+        subFlow(new ReceiveFinalityFlow(counterpartySession, signedTransaction.getId()));
+        return null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.google.common.collect.ImmutableSet;
+import com.template.services.ExpiryService;
+import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowExternalAsyncOperation;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+// **************
+// * Sweep flow *
+// **************
+/* Moves every overdue order of the vault to PASSED, e.g. to catch up after the node was down when the scheduled
+ * ExpireOrder flows were due. The overdue orders are read page by page and each page is expired before the next one is
+ * read. The orders of a page are grouped by their participants, so that a transaction only goes to the parties of its
+ * orders, and each group is expired in chunks, each chunk in its own ExpireOrders transaction. At most
+ * maxConcurrentChunks of these transactions are in flight at the same time. */
+@StartableByRPC
+public class ExpireOverdueOrders extends FlowLogic<String> {
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int DEFAULT_CHUNK_SIZE = 50;
+    private static final int DEFAULT_MAX_CONCURRENT_CHUNKS = 4;
+
+    //private variables
+    private final int chunkSize;
+    private final int maxConcurrentChunks;
+
+    //public constructors
+    public ExpireOverdueOrders() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CONCURRENT_CHUNKS);
+    }
+
+    public ExpireOverdueOrders(int chunkSize, int maxConcurrentChunks) {
+        if (chunkSize < 1 || maxConcurrentChunks < 1) {
+            throw new IllegalArgumentException("The chunk size and the number of concurrent chunks must be positive.");
+        }
+        this.chunkSize = chunkSize;
+        this.maxConcurrentChunks = maxConcurrentChunks;
+    }
+
+    @Suspendable
+    @Override
+    public String call() throws FlowException {
+        Instant now = Instant.now();
+        int found = 0;
+        int transactions = 0;
+        int failedChunks = 0;
+        // The expired orders drop out of the query, so only the orders that are still overdue after their page was
+        // expired, e.g. those of failed chunks, are skipped to get to the next page.
+        long skipped = 0;
+        while (true) {
+            // Step 1. Read the next page of overdue orders.
+            OverduePage page = findOverdueOrders(now, skipped);
+            found += page.chunks.stream().mapToInt(List::size).sum();
+
+            // Step 2. Expire the orders of the page chunk by chunk, with a bounded number of chunks in flight.
+            transactions += page.chunks.size();
+            for (List<List<StateRef>> round : partition(page.chunks, this.maxConcurrentChunks)) {
+                List<String> results = await(new ExpireChunks(getServiceHub().cordaService(ExpiryService.class), round));
+                failedChunks += (int) results.stream().filter(Objects::isNull).count();
+            }
+
+            if (page.last) {
+                return found + " overdue orders found and expired in " + transactions + " transactions, " + failedChunks + " of them failed.";
+            }
+            skipped += countUnconsumed(page.orders);
+        }
+    }
+
+    // Reads the overdue orders that follow the given number of orders and splits them into chunks of orders with the
+    // same participants.
+    private OverduePage findOverdueOrders(Instant now, long skipped) {
+        QueryCriteria criteria = DataUtils.orderCriteria(DataUtils.orderColumn("latestDeliveryDate", Builder.INSTANCE.lessThan(now)), Vault.StateStatus.UNCONSUMED)
+                .and(DataUtils.orderCriteria(DataUtils.orderColumn("orderState", Builder.INSTANCE.in(Arrays.asList(
+                        OrderState.State.CREATED.name(), OrderState.State.CONFIRMED.name(), OrderState.State.SHIPPED.name()))), Vault.StateStatus.UNCONSUMED));
+        Sort sort = new Sort(ImmutableSet.of(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+        int pageNumber = (int) (skipped / DEFAULT_PAGE_SIZE) + DEFAULT_PAGE_NUM;
+        Vault.Page<OrderState> page = getServiceHub().getVaultService()
+                .queryBy(OrderState.class, criteria, new PageSpecification(pageNumber, DEFAULT_PAGE_SIZE), sort);
+        List<StateAndRef<OrderState>> orders = page.getStates().subList(Math.min((int) (skipped % DEFAULT_PAGE_SIZE), page.getStates().size()), page.getStates().size());
+
+        Map<Set<AbstractParty>, List<StateRef>> groups = new LinkedHashMap<>();
+        for (StateAndRef<OrderState> order : orders) {
+            if (order.getState().getData().canExpire()) {
+                groups.computeIfAbsent(new HashSet<>(order.getState().getData().getParticipants()), participants -> new ArrayList<>()).add(order.getRef());
+            }
+        }
+        List<List<StateRef>> chunks = new ArrayList<>();
+        for (List<StateRef> group : groups.values()) {
+            chunks.addAll(partition(group, this.chunkSize));
+        }
+        boolean last = orders.isEmpty() || skipped + orders.size() >= page.getTotalStatesAvailable();
+        return new OverduePage(orders.stream().map(StateAndRef::getRef).collect(Collectors.toList()), chunks, last);
+    }
+
+    private long countUnconsumed(List<StateRef> orders) {
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED).withStateRefs(orders);
+        return getServiceHub().getVaultService()
+                .queryBy(OrderState.class, criteria, new PageSpecification(DEFAULT_PAGE_NUM, orders.size())).getStates().size();
+    }
+
+    // Splits the list into consecutive sublists of the given size, copied so that they can be checkpointed.
+    private static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += size) {
+            partitions.add(new ArrayList<>(list.subList(from, Math.min(from + size, list.size()))));
+        }
+        return partitions;
+    }
+
+    // A page of overdue orders, split into the chunks to expire. Only the references are kept, as the page is
+    // checkpointed while its chunks are expired.
+    private static class OverduePage {
+        private final List<StateRef> orders;
+        private final List<List<StateRef>> chunks;
+        private final boolean last;
+
+        OverduePage(List<StateRef> orders, List<List<StateRef>> chunks, boolean last) {
+            this.orders = orders;
+            this.chunks = chunks;
+            this.last = last;
+        }
+    }
+
+    /* Runs one round of chunks concurrently and completes once all of them are done. A failed chunk is reported as
+     * null, so that it does not abort the other chunks of the sweep. */
+    private static class ExpireChunks implements FlowExternalAsyncOperation<List<String>> {
+        private final ExpiryService expiryService;
+        private final List<List<StateRef>> chunks;
+
+        ExpireChunks(ExpiryService expiryService, List<List<StateRef>> chunks) {
+            this.expiryService = expiryService;
+            this.chunks = chunks;
+        }
+
+        @NotNull
+        @Override
+        public CompletableFuture<List<String>> execute(@NotNull String deduplicationId) {
+            List<CompletableFuture<String>> futures = chunks.stream()
+                    .map(chunk -> expiryService.expire(chunk).exceptionally(e -> null))
+                    .collect(Collectors.toList());
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        }
+    }
+}
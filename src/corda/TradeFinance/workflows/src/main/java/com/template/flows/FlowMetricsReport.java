@@ -0,0 +1,24 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.AccountKeyPool;
+import com.template.services.FlowMetrics;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+
+// ****************
+// * Metrics flow *
+// ****************
+/* Returns the flow and the account key pool metrics of this node in the Prometheus text format, so that they can be
+ * scraped over RPC, e.g. by the /metrics endpoint of the webserver. */
+@StartableByRPC
+public class FlowMetricsReport extends FlowLogic<String> {
+
+    @Suspendable
+    @Override
+    public String call() throws FlowException {
+        return getServiceHub().cordaService(FlowMetrics.class).getPrometheusText()
+                + getServiceHub().cordaService(AccountKeyPool.class).getPrometheusText();
+    }
+}
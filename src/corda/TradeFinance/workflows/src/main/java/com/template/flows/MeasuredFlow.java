@@ -0,0 +1,31 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.FlowMetrics;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+
+/**
+ * The base of the order flows. It reports the latency of every progress tracker step and the outcome of the flow to
+ * the {@link FlowMetrics} of the node. Subclasses implement {@link #run()} instead of call().
+ */
+public abstract class MeasuredFlow extends FlowLogic<String> {
+
+    @Suspendable
+    @Override
+    public final String call() throws FlowException {
+        FlowMetrics metrics = getServiceHub().cordaService(FlowMetrics.class);
+        metrics.started(this);
+        try {
+            String result = run();
+            metrics.finished(this, null);
+            return result;
+        } catch (FlowException | RuntimeException e) {
+            metrics.finished(this, e);
+            throw e;
+        }
+    }
+
+    @Suspendable
+    protected abstract String run() throws FlowException;
+}
@@ -0,0 +1,20 @@
+package com.template.flows;
+
+import net.corda.core.flows.FlowException;
+
+/**
+ * Thrown by the flows that change an order if another flow of this node is changing the same order, so that the flow
+ * fails before it contacts the other parties instead of being rejected by the notary.
+ */
+public class OrderLockedException extends FlowException {
+    private final String orderId;
+
+    public OrderLockedException(String orderId, Throwable cause) {
+        super("The order with ID " + orderId + " is being changed by another flow.", cause);
+        this.orderId = orderId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+}
@@ -0,0 +1,49 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.r3.corda.lib.accounts.contracts.states.AccountInfo;
+import com.template.services.AccountKeyPool;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AnonymousParty;
+import net.corda.core.identity.PartyAndCertificate;
+
+import java.security.cert.CertificateException;
+import java.security.InvalidAlgorithmParameterException;
+
+// ******************
+// * Initiator flow *
+// ******************
+/* Returns a fresh key of an account, taken from the key pool of the node that hosts the account. A key of another node
+ * comes with its certificate, which is verified and registered, so that our node knows the host of the key. */
+@InitiatingFlow
+public class RequestAccountKey extends FlowLogic<AnonymousParty> {
+
+    //private variables
+    private final AccountInfo account;
+
+    //public constructor
+    public RequestAccountKey(AccountInfo account) {
+        this.account = account;
+    }
+
+    @Suspendable
+    @Override
+    public AnonymousParty call() throws FlowException {
+        if (account.getHost().equals(getOurIdentity())) {
+            PartyAndCertificate key = getServiceHub().cordaService(AccountKeyPool.class).take(account.getIdentifier().getId(), getOurIdentityAndCert());
+            return new AnonymousParty(key.getOwningKey());
+        }
+
+        FlowSession session = initiateFlow(account.getHost());
+        PartyAndCertificate key = session.sendAndReceive(PartyAndCertificate.class, account.getIdentifier().getId()).unwrap(data -> data);
+        if (!key.getParty().equals(account.getHost())) {
+            throw new FlowException("The key of the account " + account.getName() + " is not certified by its host.");
+        }
+        try {
+            getServiceHub().getIdentityService().verifyAndRegisterIdentity(key);
+        } catch (CertificateException | InvalidAlgorithmParameterException e) {
+            throw new FlowException("The certificate of the key of the account " + account.getName() + " is invalid.", e);
+        }
+        return new AnonymousParty(key.getOwningKey());
+    }
+}
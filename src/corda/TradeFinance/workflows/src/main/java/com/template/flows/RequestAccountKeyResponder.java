@@ -0,0 +1,38 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.r3.corda.lib.accounts.contracts.states.AccountInfo;
+import com.r3.corda.lib.accounts.workflows.services.KeyManagementBackedAccountService;
+import com.template.services.AccountKeyPool;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.*;
+
+import java.util.UUID;
+
+// ******************
+// * Responder flow *
+// ******************
+@InitiatedBy(RequestAccountKey.class)
+public class RequestAccountKeyResponder extends FlowLogic<Void> {
+
+    //private variable
+    private FlowSession counterpartySession;
+
+    //Constructor
+    public RequestAccountKeyResponder(FlowSession counterpartySession) {
+        this.counterpartySession = counterpartySession;
+    }
+
+    @Suspendable
+    @Override
+    public Void call() throws FlowException {
+        UUID accountId = counterpartySession.receive(UUID.class).unwrap(data -> data);
+        //Only hands out keys of the accounts we host.
+        StateAndRef<AccountInfo> account = getServiceHub().cordaService(KeyManagementBackedAccountService.class).accountInfo(accountId);
+        if (account == null || !account.getState().getData().getHost().equals(getOurIdentity())) {
+            throw new FlowException("The account " + accountId + " is not hosted by " + getOurIdentity().getName() + ".");
+        }
+        counterpartySession.send(getServiceHub().cordaService(AccountKeyPool.class).take(accountId, getOurIdentityAndCert()));
+        return null;
+    }
+}
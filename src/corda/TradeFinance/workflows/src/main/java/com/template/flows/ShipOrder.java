@@ -1,9 +1,12 @@
 package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
+import com.r3.corda.lib.ci.workflows.SyncKeyMappingFlow;
 import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
 import com.template.states.OrderState;
 import com.template.utils.DataUtils;
+import com.template.utils.IdentityUtils;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.flows.*;
 import net.corda.core.identity.AbstractParty;
@@ -12,19 +15,24 @@ import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
 
+import java.security.PublicKey;
 import java.util.List;
 import java.util.stream.Collectors;
 
 // ******************
 // * Initiator flow *
 // ******************
-@InitiatingFlow
+/* Ships an order. If the seller or the buyer of the order is an account, the flow also tells the other parties which
+ * nodes host the keys of the accounts, which the freight company needs to sign the arrival of the order later on.
+ * Version 2 added this handshake, nodes still running version 1 neither send nor expect it. */
+@InitiatingFlow(version = 2)
 @StartableByRPC
-public class ShipOrder extends FlowLogic<String> {
+public class ShipOrder extends MeasuredFlow {
     private final ProgressTracker progressTracker = tracker();
 
     private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating a ShipOrder transaction");
     private static final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+    private static final ProgressTracker.Step SYNCING_KEYS = new ProgressTracker.Step("Sharing the hosts of the account keys with the other parties.");
     private static final ProgressTracker.Step COLLECTING_SIGNATURES = new ProgressTracker.Step("Collecting the signatures of the other parties.");
     private static final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Recording transaction") {
         @Override
@@ -37,6 +45,7 @@ public class ShipOrder extends FlowLogic<String> {
         return new ProgressTracker(
                 GENERATING_TRANSACTION,
                 SIGNING_TRANSACTION,
+                SYNCING_KEYS,
                 COLLECTING_SIGNATURES,
                 FINALISING_TRANSACTION
         );
@@ -61,18 +70,18 @@ public class ShipOrder extends FlowLogic<String> {
 
     @Suspendable
     @Override
-    public String call() throws FlowException {
-        // Step 1. Check if an order with this ID already exists
-        StateAndRef<OrderState> inputOrderStateAndRef = DataUtils.getOrder(getServiceHub(), this.orderId);
+    protected String run() throws FlowException {
+        // Step 1. Check if an order with this ID already exists and lock it against the other flows of this node
+        StateAndRef<OrderState> inputOrderStateAndRef = DataUtils.getOrderForUpdate(getServiceHub(), this.orderId, getRunId().getUuid());
         OrderState inputOrderState = inputOrderStateAndRef.getState().getData();
 
         // Generate State for transfer
         // Step 2. Get a reference to the notary service on our network and our key pair.
-        final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
 
         // Step 3. Compose the State that carries the order data
         progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-        final Party freightParty = getServiceHub().getIdentityService().partiesFromName(this.freightCompany, true).stream().findFirst().get();
+        final Party freightParty = getServiceHub().cordaService(IdentityCache.class).getParty(this.freightCompany);
         OrderState outputOrderState = inputOrderState.copy();
         outputOrderState.setOrderState(OrderState.State.SHIPPED);
         outputOrderState.setFreightCompany(freightParty);
@@ -86,20 +95,29 @@ public class ShipOrder extends FlowLogic<String> {
         builder.addOutputState(outputOrderState);
         builder.addCommand(new TradeFinanceContract.Commands.Ship(getOurIdentity()), outputOrderState.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
 
-        // Step 6. Verify and sign it with our KeyPair.
+        // Step 6. Verify and sign it with our KeyPair and the keys of the accounts we host.
         progressTracker.setCurrentStep(SIGNING_TRANSACTION);
         builder.verify(getServiceHub());
-        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder);
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
 
-        // Step 7. Collect the other party's signature using the SignTransactionFlow.
-        progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
-        List<Party> otherParties = outputOrderState.getParticipants().stream().map(el -> (Party) el).collect(Collectors.toList());
-        otherParties.remove(getOurIdentity());
+        // Step 7. Tell the other parties whether the order has accounts and, if so, which nodes host their keys.
+        progressTracker.setCurrentStep(SYNCING_KEYS);
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), outputOrderState.getParticipants());
         List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
+        boolean accounts = outputOrderState.getSellerAccount() != null || outputOrderState.getBuyerAccount() != null;
+        for (FlowSession session : sessions) {
+            session.send(accounts);
+            if (accounts) {
+                subFlow(new SyncKeyMappingFlow(session, ptx.getTx()));
+            }
+        }
 
-        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions));
+        // Step 8. Collect the other party's signature using the SignTransactionFlow.
+        progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
 
-        // Step 8. Assuming no exceptions, we can now finalise the transaction
+        // Step 9. Assuming no exceptions, we can now finalise the transaction
         progressTracker.setCurrentStep(FINALISING_TRANSACTION);
         subFlow(new FinalityFlow(stx, sessions));
 
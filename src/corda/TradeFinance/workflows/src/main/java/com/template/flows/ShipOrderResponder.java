@@ -1,6 +1,8 @@
 package com.template.flows;
 
 import co.paralleluniverse.fibers.Suspendable;
+import com.r3.corda.lib.ci.workflows.SyncKeyMappingFlowHandler;
+import com.template.utils.DataUtils;
 import net.corda.core.flows.*;
 import net.corda.core.transactions.SignedTransaction;
 
@@ -21,6 +23,11 @@ public class ShipOrderResponder extends FlowLogic<Void> {
     @Suspendable
     @Override
     public Void call() throws FlowException {
+        //Learns which nodes host the keys of the accounts, if the order has any. Version 1 of ShipOrder did not share them.
+        if (counterpartySession.getCounterpartyFlowInfo().getFlowVersion() >= 2
+                && counterpartySession.receive(Boolean.class).unwrap(data -> data)) {
+            subFlow(new SyncKeyMappingFlowHandler(counterpartySession));
+        }
         SignedTransaction signedTransaction = subFlow(new SignTransactionFlow(counterpartySession) {
             @Suspendable
             @Override
@@ -33,8 +40,9 @@ public class ShipOrderResponder extends FlowLogic<Void> {
                  * allows us to define these additional checks. If any of these conditions are not met,
                  * we will not sign the transaction - even if the transaction and its signatures are contractually valid.
                  * ----------
-                 * For this cordapp, we will not implement any additional checks.
+                 * For this cordapp, we only lock the orders the transaction consumes against our own flows.
                  * */
+                DataUtils.reserveInputs(getServiceHub(), stx, getRunId().getUuid());
             }
         });
         //Stored the transaction into data base.
@@ -0,0 +1,110 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.contracts.TradeFinanceContract;
+import com.template.services.IdentityCache;
+import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import com.template.utils.IdentityUtils;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// ******************
+// * Initiator flow *
+// ******************
+/* Signs the arrival of an order for the buyer and the freight company at once and moves it to DELIVERED, so that a
+ * delivered order needs one notarised transaction instead of two SignArrival transactions. Started by one of the two,
+ * the other one co-signs the transaction if it has acknowledged the arrival with AcknowledgeArrival before. */
+@InitiatingFlow
+@StartableByRPC
+public class SignArrivalJointly extends MeasuredFlow {
+    private final ProgressTracker progressTracker = tracker();
+
+    private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating a SignArrivalJointly transaction");
+    private static final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+    private static final ProgressTracker.Step COLLECTING_SIGNATURES = new ProgressTracker.Step("Collecting the arrival acknowledgement and the signatures of the other parties.");
+    private static final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Recording transaction") {
+        @Override
+        public ProgressTracker childProgressTracker() {
+            return FinalityFlow.tracker();
+        }
+    };
+
+    private static ProgressTracker tracker() {
+        return new ProgressTracker(
+                GENERATING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                COLLECTING_SIGNATURES,
+                FINALISING_TRANSACTION
+        );
+    }
+
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    //private variables
+    private final String orderId;
+
+    //public constructor
+    public SignArrivalJointly(String orderId) {
+        this.orderId = orderId;
+    }
+
+    @Suspendable
+    @Override
+    protected String run() throws FlowException {
+        // Step 1. Check if an order with this ID already exists and lock it against the other flows of this node
+        StateAndRef<OrderState> inputOrderStateAndRef = DataUtils.getOrderForUpdate(getServiceHub(), this.orderId, getRunId().getUuid());
+        OrderState inputOrderState = inputOrderStateAndRef.getState().getData();
+
+        // Step 2. Get a reference to the notary service on our network and our key pair.
+        final Party notary = getServiceHub().cordaService(IdentityCache.class).getNotary();
+
+        // Step 3. Compose the State that carries the order data, signed by both and delivered.
+        progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+        OrderState outputOrderState = inputOrderState.copy();
+        outputOrderState.setBuyerSigned(true);
+        outputOrderState.setFreightSigned(true);
+        outputOrderState.setOrderState(OrderState.State.DELIVERED);
+
+        // Step 4. Create a new TransactionBuilder object.
+        final TransactionBuilder builder = new TransactionBuilder(notary);
+
+        // Step 5. Add the order as an output state, as well as a command to the transaction builder.
+        builder.addInputState(inputOrderStateAndRef);
+        builder.addOutputState(outputOrderState);
+        builder.addCommand(new TradeFinanceContract.Commands.SignJointly(getOurIdentity()), outputOrderState.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
+
+        // Step 6. Verify and sign it with our KeyPair and the keys of the accounts we host.
+        progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+        builder.verify(getServiceHub());
+        final List<PublicKey> ourKeys = IdentityUtils.ourSigningKeys(getServiceHub(), builder);
+        final SignedTransaction ptx = getServiceHub().signInitialTransaction(builder, ourKeys);
+
+        // Step 7. Collect the other parties' signatures, the one of the buyer or the freight company being its
+        // acknowledgement of the arrival.
+        progressTracker.setCurrentStep(COLLECTING_SIGNATURES);
+        List<Party> otherParties = IdentityUtils.counterparties(getServiceHub(), outputOrderState.getParticipants());
+        List<FlowSession> sessions = otherParties.stream().map(this::initiateFlow).collect(Collectors.toList());
+
+        SignedTransaction stx = subFlow(new CollectSignaturesFlow(ptx, sessions, ourKeys));
+
+        // Step 8. Assuming no exceptions, we can now finalise the transaction
+        progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+        subFlow(new FinalityFlow(stx, sessions));
+
+        return "The arrival of the order with ID '" + this.orderId + "' has been signed by '" + outputOrderState.getBuyer().getName()
+                + "' and '" + outputOrderState.getFreightCompany().getName() + "'";
+    }
+}
@@ -0,0 +1,55 @@
+package com.template.flows;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.ArrivalAcknowledgements;
+import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import net.corda.core.flows.*;
+import net.corda.core.transactions.SignedTransaction;
+
+import java.util.List;
+
+// ******************
+// * Responder flow *
+// ******************
+@InitiatedBy(SignArrivalJointly.class)
+public class SignArrivalJointlyResponder extends FlowLogic<Void> {
+
+    //private variable
+    private FlowSession counterpartySession;
+
+    //Constructor
+    public SignArrivalJointlyResponder(FlowSession counterpartySession) {
+        this.counterpartySession = counterpartySession;
+    }
+
+    @Suspendable
+    @Override
+    public Void call() throws FlowException {
+        ArrivalAcknowledgements acknowledgements = getServiceHub().cordaService(ArrivalAcknowledgements.class);
+        SignedTransaction signedTransaction = subFlow(new SignTransactionFlow(counterpartySession) {
+            @Suspendable
+            @Override
+            protected void checkTransaction(SignedTransaction stx) throws FlowException {
+                /*
+                 * The transaction signs the arrival on our behalf if we are the buyer or the freight company, so we
+                 * only sign it if we have acknowledged the arrival of the order ourselves. We also lock the orders the
+                 * transaction consumes against our own flows.
+                 * */
+                List<OrderState> orders = stx.getTx().outputsOfType(OrderState.class);
+                for (OrderState order : orders) {
+                    String orderId = order.getLinearId().getExternalId();
+                    boolean arrivalParty = getOurIdentity().equals(order.getBuyer()) || getOurIdentity().equals(order.getFreightCompany());
+                    if (arrivalParty && !acknowledgements.isAcknowledged(orderId)) {
+                        throw new FlowException("The arrival of the order with ID " + orderId + " has not been acknowledged by " + getOurIdentity().getName() + ".");
+                    }
+                }
+                DataUtils.reserveInputs(getServiceHub(), stx, getRunId().getUuid());
+            }
+        });
+        //Stored the transaction into data base.
+        subFlow(new ReceiveFinalityFlow(counterpartySession, signedTransaction.getId()));
+        signedTransaction.getTx().outputsOfType(OrderState.class).forEach(order -> acknowledgements.used(order.getLinearId().getExternalId()));
+        return null;
+    }
+}
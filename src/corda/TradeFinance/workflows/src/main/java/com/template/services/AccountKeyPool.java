@@ -0,0 +1,174 @@
+package com.template.services;
+
+import com.template.utils.RefillAccountKeys;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.identity.PartyAndCertificate;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps fresh keys and certificates of the accounts of this node ready, so that the flows that need a key for an
+ * account do not have to generate and certify it while they run.
+ *
+ * A pool is created for an account when it first needs a key. Whenever a pool falls below its low watermark, a
+ * RefillAccountKeys flow fills it up to the high watermark in the background. The first refill of a pool only fills it
+ * up to the low watermark, so that accounts that rarely need a key do not hold many unused keys. The flow is started from a thread of the
+ * pool, since starting a flow blocks until the node has accepted it, which must not happen on the thread of the flow
+ * that takes the key. A key is generated on the spot if the pool of its account is empty, which is counted as an
+ * exhaustion of the pool. The keys are registered with the ID of their account as soon as they are generated, so the
+ * keys that are still pooled when the node stops remain unused and the pools start empty again.
+ *
+ * The watermarks are read from the CorDapp config as keyPool.lowWatermark and keyPool.highWatermark. A low watermark
+ * of 0 disables the pool.
+ */
+@CordaService
+public class AccountKeyPool extends SingletonSerializeAsToken implements AccountKeyPoolMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(AccountKeyPool.class);
+    private static final int DEFAULT_LOW_WATERMARK = 5;
+    private static final int DEFAULT_HIGH_WATERMARK = 20;
+
+    private final AppServiceHub serviceHub;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final Map<UUID, Pool> pools = new ConcurrentHashMap<>();
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder exhaustions = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-key-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AccountKeyPool(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        CordappConfig config = serviceHub.getAppContext().getConfig();
+        this.lowWatermark = config.exists("keyPool.lowWatermark") ? config.getInt("keyPool.lowWatermark") : DEFAULT_LOW_WATERMARK;
+        this.highWatermark = config.exists("keyPool.highWatermark") ? config.getInt("keyPool.highWatermark") : DEFAULT_HIGH_WATERMARK;
+        if (lowWatermark < 0 || highWatermark < lowWatermark) {
+            throw new IllegalArgumentException("The key pool needs 0 <= keyPool.lowWatermark <= keyPool.highWatermark.");
+        }
+        FlowMetrics.register(serviceHub.getMyInfo().getLegalIdentities().get(0).getName().toString(), "type=AccountKeyPool", this);
+    }
+
+    /**
+     * Takes a key of the account from its pool, or generates one if the pool is empty. The identity is the one the key
+     * is certified by. Must be called within a flow.
+     */
+    public PartyAndCertificate take(UUID accountId, PartyAndCertificate identity) {
+        taken.increment();
+        Pool pool = pools.computeIfAbsent(accountId, key -> new Pool());
+        PartyAndCertificate key = pool.keys.poll();
+        if (key != null) {
+            pool.size.decrementAndGet();
+        } else {
+            exhaustions.increment();
+            key = serviceHub.getKeyManagementService().freshKeyAndCert(identity, false, accountId);
+        }
+        refillIfLow(accountId, pool);
+        return key;
+    }
+
+    // Starts a single refill per account at a time without waiting for it. The refill runs as a flow of its own, because
+    // keys can only be generated within the database transaction of a flow.
+    private void refillIfLow(UUID accountId, Pool pool) {
+        int size = pool.size.get();
+        if (size >= lowWatermark || !pool.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        int target = pool.filled ? highWatermark : lowWatermark;
+        CompletableFuture.supplyAsync(() -> serviceHub.startFlow(new RefillAccountKeys(accountId, target - size)), refiller)
+                .thenCompose(handle -> handle.getReturnValue().toCompletableFuture())
+                .whenComplete((keys, error) -> {
+                    if (error == null) {
+                        pool.keys.addAll(keys);
+                        pool.size.addAndGet(keys.size());
+                        generated.add(keys.size());
+                        pool.filled = true;
+                    } else {
+                        logger.warn("Could not refill the key pool of account {}.", accountId, error);
+                    }
+                    pool.refilling.set(false);
+                });
+    }
+
+    /**
+     * Returns the number of pooled keys of the account.
+     */
+    public int available(UUID accountId) {
+        Pool pool = pools.get(accountId);
+        return pool != null ? pool.size.get() : 0;
+    }
+
+    @Override
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    @Override
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    @Override
+    public int getAccounts() {
+        return pools.size();
+    }
+
+    @Override
+    public long getPooledKeys() {
+        return pools.values().stream().mapToLong(pool -> pool.size.get()).sum();
+    }
+
+    @Override
+    public long getKeysTaken() {
+        return taken.sum();
+    }
+
+    @Override
+    public long getExhaustions() {
+        return exhaustions.sum();
+    }
+
+    @Override
+    public long getKeysGenerated() {
+        return generated.sum();
+    }
+
+    @Override
+    public String getPrometheusText() {
+        return "# HELP tradefinance_account_key_pool_keys Pre-generated account keys that are ready to be taken.\n" +
+                "# TYPE tradefinance_account_key_pool_keys gauge\n" +
+                "tradefinance_account_key_pool_keys " + getPooledKeys() + "\n" +
+                "# HELP tradefinance_account_key_pool_taken_total Account keys taken from the pools.\n" +
+                "# TYPE tradefinance_account_key_pool_taken_total counter\n" +
+                "tradefinance_account_key_pool_taken_total " + getKeysTaken() + "\n" +
+                "# HELP tradefinance_account_key_pool_exhausted_total Account keys generated on the spot because the pool of the account was empty.\n" +
+                "# TYPE tradefinance_account_key_pool_exhausted_total counter\n" +
+                "tradefinance_account_key_pool_exhausted_total " + getExhaustions() + "\n";
+    }
+
+    // The queue only knows its size by traversing it, so the size is counted separately.
+    private static class Pool {
+        private final Queue<PartyAndCertificate> keys = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        // Whether the pool was refilled before, after which it is refilled up to the high watermark.
+        private volatile boolean filled;
+    }
+}
@@ -0,0 +1,31 @@
+package com.template.services;
+
+/**
+ * The JMX view of the {@link AccountKeyPool} of a node.
+ */
+public interface AccountKeyPoolMXBean {
+    int getLowWatermark();
+
+    int getHighWatermark();
+
+    /**
+     * Returns the number of accounts that have a pool.
+     */
+    int getAccounts();
+
+    long getPooledKeys();
+
+    long getKeysTaken();
+
+    /**
+     * Returns the number of keys that were generated on the spot, because the pool of their account was empty.
+     */
+    long getExhaustions();
+
+    /**
+     * Returns the number of keys that were generated in the background to refill the pools.
+     */
+    long getKeysGenerated();
+
+    String getPrometheusText();
+}
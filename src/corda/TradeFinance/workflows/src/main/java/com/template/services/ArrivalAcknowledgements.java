@@ -0,0 +1,35 @@
+package com.template.services;
+
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the orders whose arrival this node has acknowledged with AcknowledgeArrival, so that it co-signs the
+ * SignArrivalJointly transaction of the other party for them.
+ *
+ * An acknowledgement is used up by the transaction that delivers its order. Acknowledgements only live in memory: they
+ * have to be given again after a restart of the node.
+ */
+@CordaService
+public class ArrivalAcknowledgements extends SingletonSerializeAsToken {
+    private final Set<String> acknowledged = ConcurrentHashMap.newKeySet();
+
+    public ArrivalAcknowledgements(AppServiceHub serviceHub) {
+    }
+
+    public void acknowledge(String orderId) {
+        acknowledged.add(orderId);
+    }
+
+    public boolean isAcknowledged(String orderId) {
+        return acknowledged.contains(orderId);
+    }
+
+    public void used(String orderId) {
+        acknowledged.remove(orderId);
+    }
+}
@@ -0,0 +1,36 @@
+package com.template.services;
+
+import com.template.flows.ExpireOrders;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts ExpireOrders flows on behalf of ExpireOverdueOrders. Flows cannot start other top-level flows themselves, so
+ * this service is what allows several chunks of overdue orders to be expired at the same time. The flows are started
+ * from a thread of the service, as the node refuses to start a top-level flow from the thread of a running flow.
+ */
+@CordaService
+public class ExpiryService extends SingletonSerializeAsToken {
+    private final AppServiceHub serviceHub;
+    private final ExecutorService starter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expiry-service");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ExpiryService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+    }
+
+    public CompletableFuture<String> expire(List<StateRef> chunk) {
+        return CompletableFuture.supplyAsync(() -> serviceHub.startFlow(new ExpireOrders(chunk)), starter)
+                .thenCompose(handle -> handle.getReturnValue().toCompletableFuture());
+    }
+}
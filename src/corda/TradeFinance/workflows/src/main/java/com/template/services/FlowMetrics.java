@@ -0,0 +1,221 @@
+package com.template.services;
+
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StateMachineRunId;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.utilities.ProgressTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how long the flows of this node spend in each step of their progress tracker, how long they take in total
+ * and why they fail.
+ *
+ * The time from the start of a flow until its first step is recorded as the step STARTING, and the steps are named
+ * after the fields that hold them, e.g. COLLECTING_SIGNATURES. A step is only recorded once it was completed, i.e.
+ * the next step was reached or the flow returned. Failures are counted by the contract rule the transaction violated,
+ * if any, or else by the type of the error. As some rules name the order they failed for, at most MAX_FAILURE_REASONS
+ * reasons are counted per flow and any further ones are counted as "other". The metrics are registered with the platform MBean server under the domain com.template and can be scraped
+ * in the Prometheus text format with the FlowMetricsReport flow.
+ */
+@CordaService
+public class FlowMetrics extends SingletonSerializeAsToken implements FlowMetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(FlowMetrics.class);
+    private static final String STARTING = "STARTING";
+    private static final String FAILED_REQUIREMENT = "Failed requirement: ";
+    private static final int MAX_FAILURE_REASONS = 20;
+    private static final String OTHER_REASON = "other";
+
+    private final String node;
+    private final Map<StateMachineRunId, Timing> running = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LatencyHistogram>> stepLatencies = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LatencyHistogram>> flowLatencies = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> failures = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<ProgressTracker.Step, String>> stepNames = new ConcurrentHashMap<>();
+
+    public FlowMetrics(AppServiceHub serviceHub) {
+        this.node = serviceHub.getMyInfo().getLegalIdentities().get(0).getName().toString();
+        register("type=FlowMetrics", this);
+    }
+
+    /**
+     * Starts measuring the given flow. Its progress tracker is followed until {@link #finished} is called.
+     */
+    public void started(FlowLogic<?> flow) {
+        long now = System.nanoTime();
+        Timing timing = new Timing(flow.getClass(), now);
+        running.put(flow.getRunId(), timing);
+        ProgressTracker tracker = flow.getProgressTracker();
+        if (tracker != null) {
+            timing.subscription = tracker.getChanges().subscribe(change -> {
+                // Changes of the child trackers, e.g. the one of the FinalityFlow, count for the step of the parent.
+                if (change instanceof ProgressTracker.Change.Position && change.getProgressTracker() == tracker) {
+                    ProgressTracker.Step step = ((ProgressTracker.Change.Position) change).getNewStep();
+                    if (step != ProgressTracker.UNSTARTED.INSTANCE && step != ProgressTracker.STARTING.INSTANCE && step != ProgressTracker.DONE.INSTANCE) {
+                        timing.enter(stepName(flow.getClass(), step), System.nanoTime());
+                    }
+                }
+            }, error -> {
+                // The flow failed, which finished() records.
+            });
+        }
+    }
+
+    /**
+     * Records the latency of the current step and of the whole flow, or the failure if an error is given.
+     */
+    public void finished(FlowLogic<?> flow, Throwable error) {
+        Timing timing = running.remove(flow.getRunId());
+        if (timing == null) {
+            // The flow was restored from a checkpoint after a restart of the node, so its start is unknown.
+            return;
+        }
+        long now = System.nanoTime();
+        if (timing.subscription != null) {
+            timing.subscription.unsubscribe();
+        }
+        if (error == null) {
+            timing.enter(null, now);
+        } else {
+            Map<String, LongAdder> reasons = failures.computeIfAbsent(timing.flow, key -> new ConcurrentHashMap<>());
+            String reason = reason(error);
+            if (!reasons.containsKey(reason) && reasons.size() >= MAX_FAILURE_REASONS) {
+                reason = OTHER_REASON;
+            }
+            reasons.computeIfAbsent(reason, key -> new LongAdder()).increment();
+        }
+        histogram(flowLatencies, "FlowLatency", "outcome", timing.flow, error == null ? "success" : "failure").record(now - timing.started);
+    }
+
+    @Override
+    public Map<String, Long> getFailures() {
+        Map<String, Long> counts = new TreeMap<>();
+        failures.forEach((flow, reasons) -> reasons.forEach((reason, count) -> counts.put(flow + ": " + reason, count.sum())));
+        return counts;
+    }
+
+    @Override
+    public int getRunningFlows() {
+        return running.size();
+    }
+
+    @Override
+    public String getPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP tradefinance_flow_step_duration_seconds Time spent in a completed progress tracker step.\n");
+        out.append("# TYPE tradefinance_flow_step_duration_seconds histogram\n");
+        writeHistograms(out, "tradefinance_flow_step_duration_seconds", "step", stepLatencies);
+        out.append("# HELP tradefinance_flow_duration_seconds Time from the start of a flow until it returned or failed.\n");
+        out.append("# TYPE tradefinance_flow_duration_seconds histogram\n");
+        writeHistograms(out, "tradefinance_flow_duration_seconds", "outcome", flowLatencies);
+        out.append("# HELP tradefinance_flow_failures_total Failed flows by the violated contract rule or the type of the error.\n");
+        out.append("# TYPE tradefinance_flow_failures_total counter\n");
+        new TreeMap<>(failures).forEach((flow, reasons) -> new TreeMap<>(reasons).forEach((reason, count) ->
+                out.append("tradefinance_flow_failures_total{flow=\"").append(flow).append("\",reason=\"").append(escape(reason))
+                        .append("\"} ").append(count.sum()).append('\n')));
+        return out.toString();
+    }
+
+    private void writeHistograms(StringBuilder out, String name, String label, Map<String, Map<String, LatencyHistogram>> histograms) {
+        new TreeMap<>(histograms).forEach((flow, byLabel) -> new TreeMap<>(byLabel).forEach((value, histogram) ->
+                histogram.writePrometheus(out, name, "flow=\"" + flow + "\"," + label + "=\"" + value + "\"")));
+    }
+
+    private LatencyHistogram histogram(Map<String, Map<String, LatencyHistogram>> histograms, String type, String label, String flow, String value) {
+        return histograms.computeIfAbsent(flow, key -> new ConcurrentHashMap<>()).computeIfAbsent(value, key -> {
+            LatencyHistogram histogram = new LatencyHistogram();
+            register("type=" + type + ",flow=" + flow + "," + label + "=" + value, histogram);
+            return histogram;
+        });
+    }
+
+    // Looks up the name of the static field of the flow that holds the step.
+    private String stepName(Class<?> flowClass, ProgressTracker.Step step) {
+        Map<ProgressTracker.Step, String> names = stepNames.computeIfAbsent(flowClass, key -> {
+            Map<ProgressTracker.Step, String> found = new ConcurrentHashMap<>();
+            for (Field field : key.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && ProgressTracker.Step.class.isAssignableFrom(field.getType())) {
+                    try {
+                        field.setAccessible(true);
+                        found.put((ProgressTracker.Step) field.get(null), field.getName());
+                    } catch (IllegalAccessException | RuntimeException e) {
+                        logger.debug("Cannot read the step {} of {}.", field.getName(), key.getSimpleName(), e);
+                    }
+                }
+            }
+            return found;
+        });
+        return names.getOrDefault(step, step.getLabel());
+    }
+
+    // Finds the violated contract rule in the error or its causes.
+    private static String reason(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            int index = message != null ? message.indexOf(FAILED_REQUIREMENT) : -1;
+            if (index >= 0) {
+                String rule = message.substring(index + FAILED_REQUIREMENT.length());
+                int end = rule.indexOf(", contract: ");
+                return end >= 0 ? rule.substring(0, end) : rule;
+            }
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private void register(String properties, Object bean) {
+        register(node, properties, bean);
+    }
+
+    // Registers the bean under the name of the node. A bean left behind by a previous node in this JVM is replaced.
+    static void register(String node, String properties, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.template:node=" + ObjectName.quote(node) + "," + properties);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+        } catch (JMException e) {
+            logger.warn("Could not register the metrics {} with JMX.", properties, e);
+        }
+    }
+
+    private class Timing {
+        private final String flow;
+        private final long started;
+        private String step = STARTING;
+        private long stepStarted;
+        private volatile Subscription subscription;
+
+        Timing(Class<?> flowClass, long started) {
+            this.flow = flowClass.getSimpleName();
+            this.started = started;
+            this.stepStarted = started;
+        }
+
+        // Completes the current step and enters the next one. Flows only ever move on from a single thread at a time.
+        synchronized void enter(String next, long now) {
+            if (step != null) {
+                histogram(stepLatencies, "FlowStepLatency", "step", flow, step).record(now - stepStarted);
+            }
+            step = next;
+            stepStarted = now;
+        }
+    }
+}
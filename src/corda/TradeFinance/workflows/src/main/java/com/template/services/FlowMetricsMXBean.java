@@ -0,0 +1,19 @@
+package com.template.services;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link FlowMetrics} of a node. The latencies are registered as separate
+ * {@link LatencyHistogramMXBean}s.
+ */
+public interface FlowMetricsMXBean {
+    /**
+     * Returns the number of failed flows, keyed by "flow: reason". The reason is the violated contract rule if there
+     * was one, else the type of the error.
+     */
+    Map<String, Long> getFailures();
+
+    int getRunningFlows();
+
+    String getPrometheusText();
+}
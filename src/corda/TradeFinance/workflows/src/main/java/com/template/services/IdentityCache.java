@@ -0,0 +1,49 @@
+package com.template.services;
+
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the notary and the parties that flows resolve by name, so that the network map cache and the identity
+ * service are not queried again by every flow. The cache is cleared whenever the network map changes.
+ */
+@CordaService
+public class IdentityCache extends SingletonSerializeAsToken {
+    private final AppServiceHub serviceHub;
+    private final Map<String, Party> partiesByName = new ConcurrentHashMap<>();
+    private volatile Party notary;
+
+    public IdentityCache(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        serviceHub.getNetworkMapCache().track().getUpdates().subscribe(change -> invalidate());
+    }
+
+    public Party getNotary() {
+        Party cached = this.notary;
+        if (cached == null) {
+            List<Party> notaries = serviceHub.getNetworkMapCache().getNotaryIdentities();
+            if (notaries.isEmpty()) {
+                throw new IllegalStateException("No notary is known to this node.");
+            }
+            cached = notaries.get(0);
+            this.notary = cached;
+        }
+        return cached;
+    }
+
+    public Party getParty(String name) {
+        return partiesByName.computeIfAbsent(name, key -> serviceHub.getIdentityService().partiesFromName(key, true).stream().findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No party with the name " + key + " is known to this node.")));
+    }
+
+    public void invalidate() {
+        this.notary = null;
+        partiesByName.clear();
+    }
+}
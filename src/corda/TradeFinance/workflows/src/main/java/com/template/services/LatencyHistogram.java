@@ -0,0 +1,101 @@
+package com.template.services;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed buckets, as Prometheus defines them. Recording is lock-free, so flows on different
+ * threads do not contend for it.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    // The upper bounds of the buckets in milliseconds. A last, unbounded bucket holds everything above.
+    static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BOUNDS.length && millis >= BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : sumNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return percentile(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentile(0.99);
+    }
+
+    // Returns the upper bound of the bucket that holds the percentile, or the maximum if that is lower.
+    private double percentile(double p) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Appends the histogram in the Prometheus text format. The labels are given without braces.
+     */
+    void writePrometheus(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i < BOUNDS.length ? Double.toString(BOUNDS[i] / 1000.0) : "+Inf";
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ").append(String.format(Locale.ROOT, "%.6f", sumNanos.sum() / 1e9)).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+}
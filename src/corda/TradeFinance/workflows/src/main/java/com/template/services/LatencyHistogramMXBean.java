@@ -0,0 +1,18 @@
+package com.template.services;
+
+/**
+ * The JMX view of a {@link LatencyHistogram}. The percentiles are the upper bounds of their buckets.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+}
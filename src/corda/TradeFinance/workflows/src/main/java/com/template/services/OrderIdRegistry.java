@@ -0,0 +1,98 @@
+package com.template.services;
+
+import com.template.flows.DuplicateOrderException;
+import com.template.schemas.OrderSchemaV1;
+import com.template.states.OrderState;
+import kotlin.jvm.functions.Function1;
+import net.corda.core.flows.StateMachineRunId;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Knows every order ID of this node, so that CreateOrder can reject duplicates without a vault query.
+ *
+ * The IDs are loaded once from the order schema and then kept current from the vault updates. A flow that creates
+ * orders reserves their IDs first, so that two flows that create the same order at the same time cannot both pass the
+ * check. The reservation is released when the flow fails, and turned into a known ID when it succeeds. Reservations
+ * only live in memory: a flow that is restored from its checkpoint after a restart of the node no longer holds them.
+ */
+@CordaService
+public class OrderIdRegistry extends SingletonSerializeAsToken {
+    private final AppServiceHub serviceHub;
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final Map<String, StateMachineRunId> reserved = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public OrderIdRegistry(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        // Subscribed before the IDs are loaded, so that no order recorded in between is missed.
+        serviceHub.getVaultService().getUpdates().subscribe(update -> update.getProduced().forEach(produced -> {
+            if (produced.getState().getData() instanceof OrderState) {
+                known.add(((OrderState) produced.getState().getData()).getLinearId().getExternalId());
+            }
+        }));
+    }
+
+    /**
+     * Reserves the given order IDs for the flow, or throws if one of them is already known or reserved by another
+     * flow. Reserving the same IDs again for the same flow succeeds, e.g. if the flow is retried. Must be called
+     * within the database transaction of a flow.
+     */
+    public void reserve(Collection<String> orderIds, StateMachineRunId flowId) throws DuplicateOrderException {
+        ensureLoaded();
+        List<String> reservedNow = new ArrayList<>();
+        for (String orderId : orderIds) {
+            if (known.contains(orderId)) {
+                release(reservedNow, flowId);
+                throw new DuplicateOrderException(orderId);
+            }
+            StateMachineRunId holder = reserved.putIfAbsent(orderId, flowId);
+            if (holder != null && !holder.equals(flowId)) {
+                release(reservedNow, flowId);
+                throw new DuplicateOrderException(orderId);
+            }
+            reservedNow.add(orderId);
+        }
+    }
+
+    /**
+     * Releases the reservations of the flow, e.g. because the flow failed.
+     */
+    public void release(Collection<String> orderIds, StateMachineRunId flowId) {
+        orderIds.forEach(orderId -> reserved.remove(orderId, flowId));
+    }
+
+    /**
+     * Marks the reserved IDs as known, once the flow recorded their orders.
+     */
+    public void recorded(Collection<String> orderIds, StateMachineRunId flowId) {
+        known.addAll(orderIds);
+        release(orderIds, flowId);
+    }
+
+    // Loads the IDs of all orders ever recorded by this node. The orders of a lineage share their ID, so the distinct
+    // IDs of the order schema suffice and the states themselves do not have to be deserialized.
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                List<String> orderIds = serviceHub.withEntityManager((Function1<EntityManager, List<String>>) entityManager -> entityManager
+                        .createQuery("select distinct o.orderId from " + OrderSchemaV1.PersistentOrder.class.getName() + " o", String.class)
+                        .getResultList());
+                known.addAll(orderIds);
+                loaded = true;
+            }
+        }
+    }
+}
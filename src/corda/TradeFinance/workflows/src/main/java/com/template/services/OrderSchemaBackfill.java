@@ -0,0 +1,99 @@
+package com.template.services;
+
+import com.google.common.collect.ImmutableSet;
+import com.template.schemas.OrderSchemaV1;
+import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import kotlin.jvm.functions.Function1;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.ServiceLifecycleEvent;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.ColumnPredicate;
+import net.corda.core.node.services.vault.NullOperator;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.PersistentStateRef;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * Maps the orders that were recorded before the order schema existed, e.g. by an older version of this CorDapp.
+ *
+ * The vault only maps a state to the schemas of its contract when it records the state, so after an upgrade the older
+ * orders are missing from order_states, where DataUtils and OrderIdRegistry look them up. The backfill runs once the
+ * node has started, before the other services, and only reads the orders from the vault if the schema holds fewer
+ * orders than the vault.
+ */
+@CordaService
+public class OrderSchemaBackfill extends SingletonSerializeAsToken {
+    private static final Logger logger = LoggerFactory.getLogger(OrderSchemaBackfill.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final AppServiceHub serviceHub;
+
+    public OrderSchemaBackfill(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        serviceHub.register(AppServiceHub.SERVICE_PRIORITY_HIGH, event -> {
+            if (event == ServiceLifecycleEvent.STATE_MACHINE_STARTED) {
+                int mapped = backfill();
+                if (mapped > 0) {
+                    logger.info("Mapped {} orders to the order schema.", mapped);
+                }
+            }
+        });
+    }
+
+    /**
+     * Maps the consumed and unconsumed orders of the vault that are missing from the order schema and returns how many
+     * there were.
+     */
+    public int backfill() {
+        return serviceHub.withEntityManager((Function1<EntityManager, Integer>) entityManager -> {
+            QueryCriteria all = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
+            QueryCriteria mapped = DataUtils.orderCriteria(DataUtils.orderColumn("orderId", new ColumnPredicate.NullExpression<String>(NullOperator.NOT_NULL)), Vault.StateStatus.ALL);
+            if (count(all) == count(mapped)) {
+                return 0;
+            }
+
+            Sort sort = new Sort(ImmutableSet.of(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+            int missing = 0;
+            for (int pageNumber = DEFAULT_PAGE_NUM; ; pageNumber++) {
+                Vault.Page<OrderState> page = serviceHub.getVaultService()
+                        .queryBy(OrderState.class, all, new PageSpecification(pageNumber, PAGE_SIZE), sort);
+                Set<PersistentStateRef> known = new HashSet<>(entityManager
+                        .createQuery("select o.stateRef from " + OrderSchemaV1.PersistentOrder.class.getName() + " o where o.stateRef.txId in :txIds", PersistentStateRef.class)
+                        .setParameter("txIds", page.getStates().stream().map(order -> order.getRef().getTxhash().toString()).collect(Collectors.toSet()))
+                        .getResultList());
+                for (StateAndRef<OrderState> order : page.getStates()) {
+                    PersistentStateRef ref = new PersistentStateRef(order.getRef());
+                    if (!known.contains(ref)) {
+                        PersistentState row = order.getState().getData().generateMappedObject(new OrderSchemaV1());
+                        row.setStateRef(ref);
+                        entityManager.persist(row);
+                        missing++;
+                    }
+                }
+                if (page.getStates().isEmpty() || (long) pageNumber * PAGE_SIZE >= page.getTotalStatesAvailable()) {
+                    return missing;
+                }
+            }
+        });
+    }
+
+    private long count(QueryCriteria criteria) {
+        return serviceHub.getVaultService().queryBy(OrderState.class, criteria, new PageSpecification(DEFAULT_PAGE_NUM, 1)).getTotalStatesAvailable();
+    }
+}
@@ -1,25 +1,154 @@
 package com.template.utils;
 
+import com.google.common.collect.ImmutableSet;
+import com.template.flows.OrderLockedException;
+import com.template.schemas.OrderSchemaV1;
 import com.template.states.OrderState;
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.identity.Party;
 import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
 import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.Column;
+import net.corda.core.node.services.vault.ColumnPredicate;
+import net.corda.core.node.services.vault.CriteriaExpression;
+import net.corda.core.node.services.vault.PageSpecification;
 import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.utilities.NonEmptySet;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_SIZE;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+
+//The queries that return a list of orders take the page to return, as the vault refuses to return more than
+//DEFAULT_PAGE_SIZE states without one. The orders are sorted by their state reference, so that the pages do not overlap.
 public class DataUtils {
 
+    private static final Sort BY_STATE_REF = new Sort(ImmutableSet.of(
+            new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+
     public static StateAndRef<OrderState> getOrder(ServiceHub serviceHub, String orderId) {
         //Check if an order with this ID already exists
-        QueryCriteria.LinearStateQueryCriteria queryCriteria = new QueryCriteria.LinearStateQueryCriteria()
-                .withExternalId(Collections.singletonList(orderId)).withStatus(Vault.StateStatus.UNCONSUMED);
-        List<StateAndRef<OrderState>> results = serviceHub.getVaultService().queryBy(OrderState.class, queryCriteria).getStates();
+        List<StateAndRef<OrderState>> results = getOrders(serviceHub, Collections.singletonList(orderId), Vault.StateStatus.UNCONSUMED);
         if (results.isEmpty()) {
             throw new IllegalArgumentException("An order with ID " + orderId + " does not exist or is already consumed.");
         }
         return results.get(0);
     }
 
+    //Gets the order and soft-locks it for the flow with the given ID, so that no other flow of this node can change the
+    //order at the same time. The lock is released when the flow ends.
+    public static StateAndRef<OrderState> getOrderForUpdate(ServiceHub serviceHub, String orderId, UUID flowId) throws OrderLockedException {
+        StateAndRef<OrderState> order = getOrder(serviceHub, orderId);
+        try {
+            serviceHub.getVaultService().softLockReserve(flowId, NonEmptySet.of(order.getRef()));
+        } catch (StatesNotAvailableException e) {
+            throw new OrderLockedException(orderId, e);
+        }
+        return order;
+    }
+
+    //Soft-locks the orders of this node that the transaction consumes for the flow with the given ID. The responders
+    //call this before they sign, so that a transaction racing a flow of this node on the same order is refused by us
+    //instead of by the notary. The lock is released when the flow ends.
+    public static void reserveInputs(ServiceHub serviceHub, SignedTransaction stx, UUID flowId) throws FlowException {
+        List<StateRef> inputs = stx.getInputs();
+        if (inputs.isEmpty()) {
+            return;
+        }
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED).withStateRefs(inputs);
+        List<StateRef> ours = serviceHub.getVaultService()
+                .queryBy(OrderState.class, criteria, new PageSpecification(DEFAULT_PAGE_NUM, inputs.size()), BY_STATE_REF)
+                .getStates().stream().map(StateAndRef::getRef).collect(Collectors.toList());
+        if (ours.isEmpty()) {
+            return;
+        }
+        try {
+            serviceHub.getVaultService().softLockReserve(flowId, NonEmptySet.copyOf(ours));
+        } catch (StatesNotAvailableException e) {
+            throw new FlowException("The orders of transaction " + stx.getId() + " are being changed by another flow.", e);
+        }
+    }
+
+    //Gets all orders with the given IDs, fetching as many pages as needed.
+    public static List<StateAndRef<OrderState>> getOrders(ServiceHub serviceHub, Collection<String> orderIds, Vault.StateStatus status) {
+        QueryCriteria criteria = orderCriteria(orderColumn("orderId", Builder.INSTANCE.in(orderIds)), status);
+        List<StateAndRef<OrderState>> orders = new ArrayList<>();
+        for (int pageNumber = DEFAULT_PAGE_NUM; ; pageNumber++) {
+            Vault.Page<OrderState> page = serviceHub.getVaultService()
+                    .queryBy(OrderState.class, criteria, new PageSpecification(pageNumber, DEFAULT_PAGE_SIZE), BY_STATE_REF);
+            orders.addAll(page.getStates());
+            if (page.getStates().isEmpty() || (long) pageNumber * DEFAULT_PAGE_SIZE >= page.getTotalStatesAvailable()) {
+                return orders;
+            }
+        }
+    }
+
+    public static Vault.Page<OrderState> getOrdersByState(ServiceHub serviceHub, OrderState.State state, PageSpecification paging) {
+        return queryOrders(serviceHub, orderColumn("orderState", Builder.INSTANCE.equal(state.name())), paging);
+    }
+
+    public static Vault.Page<OrderState> getOrdersByBuyer(ServiceHub serviceHub, Party buyer, PageSpecification paging) {
+        return queryOrders(serviceHub, orderColumn("buyer", Builder.INSTANCE.equal(buyer.getName().toString())), paging);
+    }
+
+    public static Vault.Page<OrderState> getOrdersBySeller(ServiceHub serviceHub, Party seller, PageSpecification paging) {
+        return queryOrders(serviceHub, orderColumn("seller", Builder.INSTANCE.equal(seller.getName().toString())), paging);
+    }
+
+    public static Vault.Page<OrderState> getOrdersByFreightCompany(ServiceHub serviceHub, Party freightCompany, PageSpecification paging) {
+        return queryOrders(serviceHub, orderColumn("freightCompany", Builder.INSTANCE.equal(freightCompany.getName().toString())), paging);
+    }
+
+    public static Vault.Page<OrderState> getOrdersByProductId(ServiceHub serviceHub, int productId, PageSpecification paging) {
+        return queryOrders(serviceHub, orderColumn("productId", Builder.INSTANCE.equal(productId)), paging);
+    }
+
+    public static Vault.Page<OrderState> getOrdersDueBefore(ServiceHub serviceHub, Instant latestDeliveryDate, PageSpecification paging) {
+        return queryOrders(serviceHub, orderColumn("latestDeliveryDate", Builder.INSTANCE.lessThan(latestDeliveryDate)), paging);
+    }
+
+    //The orders an account of this node is the seller or the buyer of. Only the node that hosts the account knows which
+    //keys belong to it, so the orders of accounts hosted elsewhere are not found.
+    public static Vault.Page<OrderState> getOrdersForAccount(ServiceHub serviceHub, UUID accountId, PageSpecification paging) {
+        return serviceHub.getVaultService().queryBy(OrderState.class, accountCriteria(accountId, Vault.StateStatus.UNCONSUMED), paging, BY_STATE_REF);
+    }
+
+    public static QueryCriteria accountCriteria(UUID accountId, Vault.StateStatus status) {
+        return new QueryCriteria.VaultQueryCriteria(status).withExternalIds(Collections.singletonList(accountId));
+    }
+
+    //Builds a query criteria on a column of the order schema, so that the query can use its index
+    public static QueryCriteria orderCriteria(CriteriaExpression<OrderSchemaV1.PersistentOrder, Boolean> expression, Vault.StateStatus status) {
+        return new QueryCriteria.VaultCustomQueryCriteria<>(expression, status);
+    }
+
+    //Applies a predicate of the Builder, e.g. Builder.INSTANCE.equal(value), to a column of the order schema
+    public static <C> CriteriaExpression<OrderSchemaV1.PersistentOrder, Boolean> orderColumn(String name, ColumnPredicate<C> predicate) {
+        try {
+            Column<OrderSchemaV1.PersistentOrder, C> column = new Column<>(getField(name, OrderSchemaV1.PersistentOrder.class));
+            return new CriteriaExpression.ColumnPredicateExpression<>(column, predicate);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("The order schema has no column " + name + ".", e);
+        }
+    }
+
+    private static Vault.Page<OrderState> queryOrders(ServiceHub serviceHub, CriteriaExpression<OrderSchemaV1.PersistentOrder, Boolean> expression, PageSpecification paging) {
+        return serviceHub.getVaultService().queryBy(OrderState.class, orderCriteria(expression, Vault.StateStatus.UNCONSUMED), paging, BY_STATE_REF);
+    }
+
 }
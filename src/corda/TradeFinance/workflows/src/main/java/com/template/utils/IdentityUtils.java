@@ -0,0 +1,41 @@
+package com.template.utils;
+
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.transactions.TransactionBuilder;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class IdentityUtils {
+
+    //Resolves the participants to the nodes that have to sign and record the transaction with us. An account resolves
+    //to the node that hosts it, so the key of the account must be known to our identity service.
+    public static List<Party> counterparties(ServiceHub serviceHub, Collection<? extends AbstractParty> participants) {
+        Set<Party> parties = new LinkedHashSet<>();
+        for (AbstractParty participant : participants) {
+            Party party = serviceHub.getIdentityService().wellKnownPartyFromAnonymous(participant);
+            if (party == null) {
+                throw new IllegalArgumentException("The node of the participant " + participant + " is unknown.");
+            }
+            parties.add(party);
+        }
+        parties.removeAll(serviceHub.getMyInfo().getLegalIdentities());
+        return new ArrayList<>(parties);
+    }
+
+    //Returns the required signers of the transaction that this node holds the keys of, i.e. its own identity and the
+    //keys of the accounts it hosts.
+    public static List<PublicKey> ourSigningKeys(ServiceHub serviceHub, TransactionBuilder builder) {
+        Set<PublicKey> signers = new LinkedHashSet<>();
+        builder.commands().forEach(command -> signers.addAll(command.getSigners()));
+        List<PublicKey> ourKeys = new ArrayList<>();
+        serviceHub.getKeyManagementService().filterMyKeys(signers).forEach(ourKeys::add);
+        return ourKeys;
+    }
+}
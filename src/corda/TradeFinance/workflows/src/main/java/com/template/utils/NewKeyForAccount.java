@@ -1,6 +1,7 @@
 package com.template.utils;
 
 import co.paralleluniverse.fibers.Suspendable;
+import com.template.services.AccountKeyPool;
 import net.corda.core.flows.FlowException;
 import net.corda.core.flows.FlowLogic;
 import net.corda.core.flows.StartableByRPC;
@@ -22,6 +23,6 @@ public class NewKeyForAccount extends FlowLogic<PartyAndCertificate>{
     @Override
     @Suspendable
     public PartyAndCertificate call() throws FlowException {
-        return getServiceHub().getKeyManagementService().freshKeyAndCert(getOurIdentityAndCert(), false, accountID);
+        return getServiceHub().cordaService(AccountKeyPool.class).take(accountID, getOurIdentityAndCert());
     }
 }
\ No newline at end of file
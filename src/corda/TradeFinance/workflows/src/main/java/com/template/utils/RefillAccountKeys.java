@@ -0,0 +1,34 @@
+package com.template.utils;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByService;
+import net.corda.core.identity.PartyAndCertificate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/* Generates fresh keys and certificates for an account, which the AccountKeyPool hands out later on. */
+@StartableByService
+public class RefillAccountKeys extends FlowLogic<List<PartyAndCertificate>> {
+
+    private final UUID accountID;
+    private final int count;
+
+    public RefillAccountKeys(UUID accountID, int count) {
+        this.accountID = accountID;
+        this.count = count;
+    }
+
+    @Override
+    @Suspendable
+    public List<PartyAndCertificate> call() throws FlowException {
+        List<PartyAndCertificate> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(getServiceHub().getKeyManagementService().freshKeyAndCert(getOurIdentityAndCert(), false, accountID));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,134 @@
+package com.template;
+
+import com.google.common.collect.ImmutableList;
+import com.r3.corda.lib.accounts.contracts.states.AccountInfo;
+import com.r3.corda.lib.accounts.workflows.services.KeyManagementBackedAccountService;
+import com.template.flows.*;
+import com.template.states.OrderState;
+import com.template.utils.CreateNewAccount;
+import com.template.utils.DataUtils;
+import com.template.utils.ShareAccountTo;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import net.corda.testing.node.TestCordapp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+// Orders between accounts, which need the accounts and the confidential identities CorDapps on every node.
+public class AccountFlowTests {
+    private MockNetwork network;
+    private StartedMockNode sellerNode;
+    private StartedMockNode buyerNode;
+    private StartedMockNode freightNode;
+
+    @Before
+    public void setup() throws ExecutionException, InterruptedException {
+        network = new MockNetwork(new MockNetworkParameters().withCordappsForAllNodes(ImmutableList.of(
+                TestCordapp.findCordapp("com.r3.corda.lib.accounts.contracts"),
+                TestCordapp.findCordapp("com.r3.corda.lib.accounts.workflows"),
+                TestCordapp.findCordapp("com.r3.corda.lib.ci.workflows"),
+                TestCordapp.findCordapp("com.template.contracts"),
+                TestCordapp.findCordapp("com.template.flows"))));
+        sellerNode = network.createPartyNode(new CordaX500Name("Seller", "Berlin", "DE"));
+        buyerNode = network.createPartyNode(new CordaX500Name("Buyer", "Vienna", "AT"));
+        freightNode = network.createPartyNode(new CordaX500Name("Freight Company", "New York", "US"));
+        // For real nodes this happens automatically, but we have to manually register the flow for tests.
+        for (StartedMockNode node : ImmutableList.of(sellerNode, buyerNode, freightNode)) {
+            node.registerInitiatedFlow(ConfirmOrderResponder.class);
+            node.registerInitiatedFlow(CreateAccountOrderResponder.class);
+            node.registerInitiatedFlow(RequestAccountKeyResponder.class);
+            node.registerInitiatedFlow(ShipOrderResponder.class);
+            node.registerInitiatedFlow(SignArrivalResponder.class);
+        }
+        network.runNetwork();
+
+        run(sellerNode, new CreateNewAccount("SellerAccount"));
+        run(buyerNode, new CreateNewAccount("BuyerAccount"));
+        run(buyerNode, new ShareAccountTo("BuyerAccount", party(sellerNode)));
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    private <T> T run(StartedMockNode node, FlowLogic<T> flow) throws ExecutionException, InterruptedException {
+        CordaFuture<T> future = node.startFlow(flow);
+        network.runNetwork();
+        return future.get();
+    }
+
+    private static Party party(StartedMockNode node) {
+        return node.getInfo().getLegalIdentities().get(0);
+    }
+
+    private static OrderState order(StartedMockNode node, String orderId) {
+        return node.transaction(() -> DataUtils.getOrder(node.getServices(), orderId).getState().getData());
+    }
+
+    private static UUID accountId(StartedMockNode node, String name) {
+        List<StateAndRef<AccountInfo>> accounts = node.transaction(() -> node.getServices().cordaService(KeyManagementBackedAccountService.class).ourAccounts());
+        return accounts.stream().map(account -> account.getState().getData()).filter(account -> account.getName().equals(name))
+                .findFirst().orElseThrow(IllegalStateException::new).getIdentifier().getId();
+    }
+
+    @Test
+    public void createAccountOrderTest() throws ExecutionException, InterruptedException {
+        run(sellerNode, new CreateAccountOrder("SellerAccount", "Buyer", "BuyerAccount", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+
+        // The order holds a fresh key of each account, which only the node that hosts the account can map to it.
+        OrderState order = order(sellerNode, "1");
+        assertNotNull(order.getSellerAccount());
+        assertNotNull(order.getBuyerAccount());
+        assertEquals(order.getBuyerAccount(), order(buyerNode, "1").getBuyerAccount());
+        PageSpecification paging = new PageSpecification(DEFAULT_PAGE_NUM, DEFAULT_PAGE_SIZE);
+        assertEquals(1, sellerNode.transaction(() -> DataUtils.getOrdersForAccount(sellerNode.getServices(), accountId(sellerNode, "SellerAccount"), paging)).getStates().size());
+        assertEquals(1, buyerNode.transaction(() -> DataUtils.getOrdersForAccount(buyerNode.getServices(), accountId(buyerNode, "BuyerAccount"), paging)).getStates().size());
+    }
+
+    @Test
+    public void shipAccountOrderTest() throws ExecutionException, InterruptedException {
+        run(sellerNode, new CreateAccountOrder("SellerAccount", "Buyer", "BuyerAccount", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        run(buyerNode, new ConfirmOrder("1"));
+        run(sellerNode, new ShipOrder("1", "Freight Company", "TRACK-1"));
+
+        // ShipOrder finds the accounts on the order and tells the freight company which nodes host their keys.
+        OrderState order = order(freightNode, "1");
+        assertEquals(OrderState.State.SHIPPED, order.getOrderState());
+        freightNode.transaction(() -> {
+            assertEquals(party(sellerNode), freightNode.getServices().getIdentityService().wellKnownPartyFromAnonymous(order.getSellerAccount()));
+            assertEquals(party(buyerNode), freightNode.getServices().getIdentityService().wellKnownPartyFromAnonymous(order.getBuyerAccount()));
+            return null;
+        });
+    }
+
+    @Test
+    public void signAccountOrderTest() throws ExecutionException, InterruptedException {
+        run(sellerNode, new CreateAccountOrder("SellerAccount", "Buyer", "BuyerAccount", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        run(buyerNode, new ConfirmOrder("1"));
+        run(sellerNode, new ShipOrder("1", "Freight Company", "TRACK-1"));
+        run(buyerNode, new SignArrival("1"));
+        run(freightNode, new SignArrival("1"));
+
+        for (StartedMockNode node : ImmutableList.of(sellerNode, buyerNode, freightNode)) {
+            assertEquals(OrderState.State.DELIVERED, order(node, "1").getOrderState());
+        }
+    }
+}
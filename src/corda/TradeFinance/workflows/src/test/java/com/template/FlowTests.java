@@ -1,13 +1,26 @@
 package com.template;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.template.flows.*;
+import com.template.schemas.OrderSchemaV1;
+import com.template.services.AccountKeyPool;
+import com.template.services.OrderSchemaBackfill;
 import com.template.states.OrderState;
+import com.template.utils.DataUtils;
+import com.template.utils.NewKeyForAccount;
+import kotlin.jvm.functions.Function1;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.TransactionVerificationException;
 import net.corda.core.flows.FlowLogic;
 import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.PartyAndCertificate;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.utilities.NonEmptySet;
 import net.corda.testing.node.MockNetwork;
 import net.corda.testing.node.MockNetworkParameters;
 import net.corda.testing.node.StartedMockNode;
@@ -16,10 +29,23 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.persistence.EntityManager;
+import java.security.PublicKey;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_SIZE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class FlowTests {
     private MockNetwork network;
@@ -29,9 +55,14 @@ public class FlowTests {
 
     @Before
     public void setup() {
-        network = new MockNetwork(new MockNetworkParameters().withCordappsForAllNodes(ImmutableList.of(
+        startNetwork(ImmutableMap.of("keyPool", ImmutableMap.of("lowWatermark", 2, "highWatermark", 4)), false);
+    }
+
+    // With a thread per node, the messages are delivered as they are sent and the network must not be run manually.
+    private void startNetwork(Map<String, Object> flowsConfig, boolean threadPerNode) {
+        network = new MockNetwork(new MockNetworkParameters().withThreadPerNode(threadPerNode).withCordappsForAllNodes(ImmutableList.of(
                 TestCordapp.findCordapp("com.template.contracts"),
-                TestCordapp.findCordapp("com.template.flows"))));
+                TestCordapp.findCordapp("com.template.flows").withConfig(flowsConfig))));
         sellerNode = network.createPartyNode(new CordaX500Name("Seller", "Berlin", "DE"));
         buyerNode = network.createPartyNode(new CordaX500Name("Buyer", "Vienna", "AT"));
         freightNode = network.createPartyNode(new CordaX500Name("Freight Company", "New York", "US"));
@@ -41,10 +72,15 @@ public class FlowTests {
             node.registerInitiatedFlow(CheckDeliveryDateResponder.class);
             node.registerInitiatedFlow(ConfirmOrderResponder.class);
             node.registerInitiatedFlow(CreateOrderResponder.class);
+            node.registerInitiatedFlow(CreateOrdersResponder.class);
+            node.registerInitiatedFlow(ExpireOrdersResponder.class);
             node.registerInitiatedFlow(ShipOrderResponder.class);
             node.registerInitiatedFlow(SignArrivalResponder.class);
+            node.registerInitiatedFlow(SignArrivalJointlyResponder.class);
+        }
+        if (!threadPerNode) {
+            network.runNetwork();
         }
-        network.runNetwork();
     }
 
     @After
@@ -54,15 +90,137 @@ public class FlowTests {
 
     @Test
     public void createOrderTest() throws ExecutionException, InterruptedException {
-        CreateOrder flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2020-09-30");
+        CreateOrder flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         assert future.get().contains("Order with ID '1' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
     }
 
+    @Test
+    public void createOrdersTest() throws ExecutionException, InterruptedException {
+        CreateOrders flow = new CreateOrders("Buyer", ImmutableList.of(
+                new CreateOrders.OrderSpec("1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"),
+                new CreateOrders.OrderSpec("2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01"),
+                new CreateOrders.OrderSpec("3", 68754, 1.0, "1337 EUR", "2 EUR", "Michaelerkuppel, 1010 Wien", "2099-08-15")));
+        CordaFuture<String> future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        assert future.get().contains("3 orders of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
+
+        // All orders were issued in one transaction and are recorded in both vaults.
+        for (StartedMockNode node : ImmutableList.of(sellerNode, buyerNode)) {
+            node.transaction(() -> {
+                List<StateAndRef<OrderState>> orders = node.getServices().getVaultService().queryBy(OrderState.class).getStates();
+                assertEquals(3, orders.size());
+                assertEquals(1, orders.stream().map(order -> order.getRef().getTxhash()).distinct().count());
+                return null;
+            });
+        }
+    }
+
+    @Test(expected = Exception.class)
+    public void createOrdersDuplicateTest() throws ExecutionException, InterruptedException {
+        FlowLogic<String> flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30");
+        CordaFuture<String> future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+
+        flow = new CreateOrders("Buyer", ImmutableList.of(
+                new CreateOrders.OrderSpec("2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01"),
+                new CreateOrders.OrderSpec("1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30")));
+        future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+    }
+
+    @Test
+    public void concurrentDuplicateOrderTest() throws ExecutionException, InterruptedException {
+        // Both flows are started before either of them recorded its order.
+        CordaFuture<String> first = sellerNode.startFlow(new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        CordaFuture<String> second = sellerNode.startFlow(new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        network.runNetwork();
+        assert first.get().contains("Order with ID '1'");
+        try {
+            second.get();
+            fail("The order ID was already reserved.");
+        } catch (ExecutionException e) {
+            assertEquals(DuplicateOrderException.class, e.getCause().getClass());
+            assertEquals("1", ((DuplicateOrderException) e.getCause()).getOrderId());
+        }
+
+        // Once the order was recorded, its ID stays taken.
+        try {
+            CordaFuture<String> third = sellerNode.startFlow(new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+            network.runNetwork();
+            third.get();
+            fail("The order already exists.");
+        } catch (ExecutionException e) {
+            assertEquals(DuplicateOrderException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void concurrentOrderUpdateTest() throws ExecutionException, InterruptedException {
+        CordaFuture<String> future = sellerNode.startFlow(new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        network.runNetwork();
+        future.get();
+
+        // Both flows read the same version of the order. The second one fails on the lock of the first one instead of
+        // collecting signatures for a transaction the notary would reject.
+        CordaFuture<String> confirm = buyerNode.startFlow(new ConfirmOrder("1"));
+        CordaFuture<String> cancel = buyerNode.startFlow(new CancelOrder("1"));
+        network.runNetwork();
+        assert confirm.get().contains("order with ID '1'");
+        try {
+            cancel.get();
+            fail("The order was locked by the confirmation.");
+        } catch (ExecutionException e) {
+            assertEquals(OrderLockedException.class, e.getCause().getClass());
+        }
+
+        // The lock is released when the flow ends.
+        cancel = buyerNode.startFlow(new CancelOrder("1"));
+        network.runNetwork();
+        assert cancel.get().contains("Cancel flow for order with ID '1'");
+    }
+
+    @Test
+    public void counterpartyOrderUpdateTest() throws ExecutionException, InterruptedException {
+        CordaFuture<String> future = sellerNode.startFlow(new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        network.runNetwork();
+        future.get();
+
+        // While a flow of the seller holds the order, the seller refuses to sign the cancellation of the buyer.
+        UUID sellerFlow = UUID.randomUUID();
+        sellerNode.transaction(() -> {
+            try {
+                sellerNode.getServices().getVaultService().softLockReserve(sellerFlow,
+                        NonEmptySet.of(DataUtils.getOrder(sellerNode.getServices(), "1").getRef()));
+            } catch (StatesNotAvailableException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+        CordaFuture<String> cancel = buyerNode.startFlow(new CancelOrder("1"));
+        network.runNetwork();
+        try {
+            cancel.get();
+            fail("The order was locked by a flow of the seller.");
+        } catch (ExecutionException e) {
+            assert e.getCause().getMessage().contains("being changed by another flow");
+        }
+
+        sellerNode.transaction(() -> {
+            sellerNode.getServices().getVaultService().softLockRelease(sellerFlow, null);
+            return null;
+        });
+        cancel = buyerNode.startFlow(new CancelOrder("1"));
+        network.runNetwork();
+        assert cancel.get().contains("Cancel flow for order with ID '1'");
+    }
+
     @Test
     public void cancelOrderTest() throws ExecutionException, InterruptedException {
-        FlowLogic<String> flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2020-09-30");
+        FlowLogic<String> flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         assert future.get().contains("Order with ID '1' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
@@ -75,7 +233,7 @@ public class FlowTests {
 
     @Test
     public void confirmOrderTest() throws ExecutionException, InterruptedException {
-        FlowLogic<String> flow = new CreateOrder("Buyer", "2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2020-12-01");
+        FlowLogic<String> flow = new CreateOrder("Buyer", "2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         assert future.get().contains("Order with ID '2' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
@@ -88,7 +246,7 @@ public class FlowTests {
 
     @Test
     public void shipOrderTest() throws ExecutionException, InterruptedException {
-        FlowLogic<String> flow = new CreateOrder("Buyer", "2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2020-12-01");
+        FlowLogic<String> flow = new CreateOrder("Buyer", "2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         assert future.get().contains("Order with ID '2' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
@@ -106,7 +264,7 @@ public class FlowTests {
 
     @Test
     public void signArrivalTest() throws ExecutionException, InterruptedException {
-        FlowLogic<String> flow = new CreateOrder("Buyer", "2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2020-12-01");
+        FlowLogic<String> flow = new CreateOrder("Buyer", "2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         assert future.get().contains("Order with ID '2' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
@@ -143,6 +301,52 @@ public class FlowTests {
         }
     }
 
+    @Test
+    public void signArrivalJointlyTest() throws ExecutionException, InterruptedException {
+        FlowLogic<String> flow = new CreateOrder("Buyer", "12", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01");
+        CordaFuture<String> future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+        future = buyerNode.startFlow(new ConfirmOrder("12"));
+        network.runNetwork();
+        future.get();
+        future = sellerNode.startFlow(new ShipOrder("12", "Freight Company", "XAFDWEQ"));
+        network.runNetwork();
+        future.get();
+
+        // The freight company has not acknowledged the arrival yet, so it refuses to sign.
+        future = buyerNode.startFlow(new SignArrivalJointly("12"));
+        network.runNetwork();
+        try {
+            future.get();
+            fail("The freight company did not acknowledge the arrival.");
+        } catch (ExecutionException e) {
+            assert e.getCause().getMessage().contains("has not been acknowledged");
+        }
+
+        future = freightNode.startFlow(new AcknowledgeArrival("12"));
+        network.runNetwork();
+        assert future.get().contains("The arrival of the order with ID '12' has been acknowledged by '" + freightNode.getInfo().getLegalIdentities().get(0).getName() + "'");
+
+        future = buyerNode.startFlow(new SignArrivalJointly("12"));
+        network.runNetwork();
+        assert future.get().contains("The arrival of the order with ID '12' has been signed by '" + buyerNode.getInfo().getLegalIdentities().get(0).getName()
+                + "' and '" + freightNode.getInfo().getLegalIdentities().get(0).getName() + "'");
+
+        // The order was delivered by a single transaction after it was shipped: created, confirmed, shipped, delivered.
+        // The freight company only takes part from the shipment on.
+        for (StartedMockNode node : ImmutableList.of(sellerNode, buyerNode, freightNode)) {
+            node.transaction(() -> {
+                QueryCriteria all = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
+                assertEquals(node == freightNode ? 2 : 4, node.getServices().getVaultService().queryBy(OrderState.class, all).getStates().size());
+                OrderState recordedState = node.getServices().getVaultService().queryBy(OrderState.class).getStates().get(0).getState().getData();
+                assertEquals(OrderState.State.DELIVERED, recordedState.getOrderState());
+                assert recordedState.isBuyerSigned() && recordedState.isFreightSigned();
+                return null;
+            });
+        }
+    }
+
     @Test
     public void checkDeliveryDateTest() throws ExecutionException, InterruptedException {
         FlowLogic<String> flow = new CreateOrder("Buyer", "3", 68754, 1.0, "1337 EUR", "2 EUR", "Michaelerkuppel, 1010 Wien", "2020-08-15");
@@ -150,6 +354,9 @@ public class FlowTests {
         network.runNetwork();
         assert future.get().contains("Order with ID '3' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
 
+        // The delivery date already passed, so the order expires on its own. Checking it manually still succeeds.
+        waitForOrderState(buyerNode, "3", OrderState.State.PASSED);
+
         flow = new CheckDeliveryDate("3");
         future = buyerNode.startFlow(flow);
         network.runNetwork();
@@ -167,9 +374,117 @@ public class FlowTests {
         }
     }
 
+    @Test
+    public void expireOrderTest() throws ExecutionException, InterruptedException {
+        FlowLogic<String> flow = new CreateOrders("Buyer", ImmutableList.of(
+                new CreateOrders.OrderSpec("3", 68754, 1.0, "1337 EUR", "2 EUR", "Michaelerkuppel, 1010 Wien", "2020-08-15"),
+                new CreateOrders.OrderSpec("4", 68754, 1.0, "1337 EUR", "2 EUR", "Michaelerkuppel, 1010 Wien", "2099-08-15")));
+        CordaFuture<String> future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+
+        // Only the overdue order is moved to PASSED by the scheduled flow.
+        waitForOrderState(sellerNode, "3", OrderState.State.PASSED);
+        sellerNode.transaction(() -> {
+            assertEquals(OrderState.State.CREATED, DataUtils.getOrder(sellerNode.getServices(), "4").getState().getData().getOrderState());
+            return null;
+        });
+    }
+
+    @Test
+    public void expireOverdueOrdersTest() throws ExecutionException, InterruptedException, TimeoutException {
+        // The scheduled ExpireOrder flows are turned off, so that the sweep alone expires the overdue orders. The sweep
+        // waits for the flows of its chunks, which a manually run network would never run while it waits.
+        network.stopNodes();
+        startNetwork(ImmutableMap.of("expiry", ImmutableMap.of("scheduled", false)), true);
+
+        FlowLogic<String> flow = new CreateOrders("Buyer", ImmutableList.of(
+                new CreateOrders.OrderSpec("1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"),
+                new CreateOrders.OrderSpec("2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01"),
+                new CreateOrders.OrderSpec("3", 68754, 1.0, "1337 EUR", "2 EUR", "Michaelerkuppel, 1010 Wien", "2099-08-15")));
+        sellerNode.startFlow(flow).get(30, TimeUnit.SECONDS);
+
+        // The sweep expires nothing while no order is overdue.
+        assertEquals("0 overdue orders found and expired in 0 transactions, 0 of them failed.",
+                sellerNode.startFlow(new ExpireOverdueOrders(2, 2)).get(30, TimeUnit.SECONDS));
+
+        flow = new CreateOrders("Buyer", ImmutableList.of(
+                new CreateOrders.OrderSpec("4", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2020-01-30"),
+                new CreateOrders.OrderSpec("5", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2020-02-01"),
+                new CreateOrders.OrderSpec("6", 68754, 1.0, "1337 EUR", "2 EUR", "Michaelerkuppel, 1010 Wien", "2020-02-15")));
+        sellerNode.startFlow(flow).get(30, TimeUnit.SECONDS);
+        sellerNode.startFlow(new CreateOrder("Freight Company", "7", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2020-03-01")).get(30, TimeUnit.SECONDS);
+
+        // The overdue orders are moved to PASSED by the sweep. The orders of the buyer are expired in a chunk of two
+        // orders and a chunk of one, the order of the freight company in a transaction of its own.
+        assertEquals("4 overdue orders found and expired in 3 transactions, 0 of them failed.",
+                sellerNode.startFlow(new ExpireOverdueOrders(2, 2)).get(30, TimeUnit.SECONDS));
+        buyerNode.transaction(() -> {
+            assertEquals(0, DataUtils.getOrders(buyerNode.getServices(), ImmutableList.of("7"), Vault.StateStatus.ALL).size());
+            return null;
+        });
+        sellerNode.transaction(() -> {
+            for (String orderId : ImmutableList.of("4", "5", "6", "7")) {
+                assertEquals(OrderState.State.PASSED, DataUtils.getOrder(sellerNode.getServices(), orderId).getState().getData().getOrderState());
+            }
+            for (String orderId : ImmutableList.of("1", "2", "3")) {
+                assertEquals(OrderState.State.CREATED, DataUtils.getOrder(sellerNode.getServices(), orderId).getState().getData().getOrderState());
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void orderSchemaBackfillTest() throws ExecutionException, InterruptedException {
+        CordaFuture<String> future = sellerNode.startFlow(new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"));
+        network.runNetwork();
+        future.get();
+
+        // An order recorded before the order schema existed is only found once the backfill has mapped it.
+        sellerNode.transaction(() -> sellerNode.getServices().withEntityManager((Function1<EntityManager, Integer>) entityManager -> entityManager
+                .createQuery("delete from " + OrderSchemaV1.PersistentOrder.class.getName() + " o where o.orderId = :orderId")
+                .setParameter("orderId", "1")
+                .executeUpdate()));
+        assertEquals(0, sellerNode.transaction(() -> DataUtils.getOrders(sellerNode.getServices(), ImmutableList.of("1"), Vault.StateStatus.ALL)).size());
+
+        OrderSchemaBackfill backfill = sellerNode.getServices().cordaService(OrderSchemaBackfill.class);
+        assertEquals(1, (int) sellerNode.transaction(backfill::backfill));
+        assertEquals(0, (int) sellerNode.transaction(backfill::backfill));
+        assertEquals(OrderState.State.CREATED, sellerNode.transaction(() -> DataUtils.getOrder(sellerNode.getServices(), "1")).getState().getData().getOrderState());
+    }
+
+    @Test
+    public void queryOrdersTest() throws ExecutionException, InterruptedException {
+        FlowLogic<String> flow = new CreateOrders("Buyer", ImmutableList.of(
+                new CreateOrders.OrderSpec("1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30"),
+                new CreateOrders.OrderSpec("2", 123587, 5.0, "750 EUR", "4 EUR", "Ballhausplatz 2, 1010 Wien", "2099-12-01")));
+        CordaFuture<String> future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+
+        flow = new ConfirmOrder("2");
+        future = buyerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+
+        // The orders can be found by the indexed columns of the order schema.
+        PageSpecification paging = new PageSpecification(DEFAULT_PAGE_NUM, DEFAULT_PAGE_SIZE);
+        sellerNode.transaction(() -> {
+            assertEquals("1", DataUtils.getOrder(sellerNode.getServices(), "1").getState().getData().getLinearId().getExternalId());
+            assertEquals(1, DataUtils.getOrdersByState(sellerNode.getServices(), OrderState.State.CONFIRMED, paging).getStates().size());
+            assertEquals(2, DataUtils.getOrdersByBuyer(sellerNode.getServices(), buyerNode.getInfo().getLegalIdentities().get(0), paging).getStates().size());
+            assertEquals(1, DataUtils.getOrdersByProductId(sellerNode.getServices(), 100, paging).getStates().size());
+            assertEquals(1, DataUtils.getOrdersDueBefore(sellerNode.getServices(), LocalDate.parse("2099-10-01").atStartOfDay(ZoneId.systemDefault()).toInstant(), paging).getStates().size());
+            Vault.Page<OrderState> first = DataUtils.getOrdersByBuyer(sellerNode.getServices(), buyerNode.getInfo().getLegalIdentities().get(0), new PageSpecification(DEFAULT_PAGE_NUM, 1));
+            assertEquals(1, first.getStates().size());
+            assertEquals(2, first.getTotalStatesAvailable());
+            return null;
+        });
+    }
+
     @Test(expected = Exception.class)
     public void confirmCancelledOrderTest() throws ExecutionException, InterruptedException {
-        FlowLogic<String> flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2020-09-30");
+        FlowLogic<String> flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         assert future.get().contains("Order with ID '1' of buyer '" + buyerNode.getInfo().getLegalIdentities().get(0).getName() + "' added.");
@@ -187,9 +502,101 @@ public class FlowTests {
 
     @Test(expected = Exception.class)
     public void createOrderHighShippingTest() throws ExecutionException, InterruptedException {
-        CreateOrder flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR0", "Karlsplatz 13, 1040 Wien", "2020-09-30");
+        CreateOrder flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR0", "Karlsplatz 13, 1040 Wien", "2099-09-30");
+        CordaFuture<String> future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        future.get();
+    }
+
+    @Test
+    public void flowMetricsTest() throws ExecutionException, InterruptedException {
+        FlowLogic<String> flow = new CreateOrder("Buyer", "1", 100, 2.0, "10 EUR", "2 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30");
         CordaFuture<String> future = sellerNode.startFlow(flow);
         network.runNetwork();
         future.get();
+
+        flow = new CreateOrder("Buyer", "2", 100, 2.0, "10 EUR", "20 EUR", "Karlsplatz 13, 1040 Wien", "2099-09-30");
+        future = sellerNode.startFlow(flow);
+        network.runNetwork();
+        try {
+            future.get();
+            fail("The shipping costs exceed the price.");
+        } catch (ExecutionException e) {
+            // Expected.
+        }
+
+        // Every step was timed once it was completed, and the failure was counted by the violated rule. The failed flow
+        // completed its first steps before the contract was verified.
+        future = sellerNode.startFlow(new FlowMetricsReport());
+        network.runNetwork();
+        String report = future.get();
+        for (String step : ImmutableList.of("STARTING", "GENERATING_TRANSACTION")) {
+            assert report.contains("tradefinance_flow_step_duration_seconds_count{flow=\"CreateOrder\",step=\"" + step + "\"} 2\n") : report;
+        }
+        for (String step : ImmutableList.of("SIGNING_TRANSACTION", "COLLECTING_SIGNATURES", "FINALISING_TRANSACTION")) {
+            assert report.contains("tradefinance_flow_step_duration_seconds_count{flow=\"CreateOrder\",step=\"" + step + "\"} 1\n") : report;
+        }
+        assert report.contains("tradefinance_flow_duration_seconds_count{flow=\"CreateOrder\",outcome=\"success\"} 1\n") : report;
+        assert report.contains("tradefinance_flow_failures_total{flow=\"CreateOrder\",reason=\"The price must be greater or equal to the shipping costs.\"} 1\n") : report;
+    }
+
+    @Test
+    public void accountKeyPoolTest() throws ExecutionException, InterruptedException {
+        UUID accountId = UUID.randomUUID();
+        AccountKeyPool pool = sellerNode.getServices().cordaService(AccountKeyPool.class);
+
+        // The pool of the account is empty at first, so the first key is generated on the spot.
+        Set<PublicKey> keys = new HashSet<>();
+        keys.add(newKeyForAccount(accountId).getOwningKey());
+        assertEquals(1, pool.getExhaustions());
+        // The first refill only fills the pool up to the low watermark.
+        waitForPooledKeys(pool, accountId, 2);
+
+        // Taking a key below the low watermark is served from the pool, which is then refilled up to the high watermark.
+        keys.add(newKeyForAccount(accountId).getOwningKey());
+        waitForPooledKeys(pool, accountId, 4);
+        for (int i = 0; i < 2; i++) {
+            keys.add(newKeyForAccount(accountId).getOwningKey());
+        }
+        waitForPooledKeys(pool, accountId, 2);
+        assertEquals(1, pool.getExhaustions());
+        assertEquals(4, pool.getKeysTaken());
+        assertEquals(4, keys.size());
+        for (PublicKey key : keys) {
+            assertEquals(accountId, sellerNode.transaction(() -> sellerNode.getServices().getIdentityService().externalIdForPublicKey(key)));
+        }
+
+        CordaFuture<String> report = sellerNode.startFlow(new FlowMetricsReport());
+        network.runNetwork();
+        assert report.get().contains("tradefinance_account_key_pool_exhausted_total 1\n") : report.get();
+    }
+
+    private PartyAndCertificate newKeyForAccount(UUID accountId) throws ExecutionException, InterruptedException {
+        CordaFuture<PartyAndCertificate> future = sellerNode.startFlow(new NewKeyForAccount(accountId));
+        network.runNetwork();
+        return future.get();
+    }
+
+    private void waitForPooledKeys(AccountKeyPool pool, UUID accountId, int keys) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            network.runNetwork();
+            if (pool.available(accountId) == keys) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("The key pool of account " + accountId + " holds " + pool.available(accountId) + " instead of " + keys + " keys.");
+    }
+
+    private void waitForOrderState(StartedMockNode node, String orderId, OrderState.State state) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            network.runNetwork();
+            OrderState.State current = node.transaction(() -> DataUtils.getOrder(node.getServices(), orderId).getState().getData().getOrderState());
+            if (current == state) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("Order " + orderId + " did not reach state " + state + ".");
     }
 }
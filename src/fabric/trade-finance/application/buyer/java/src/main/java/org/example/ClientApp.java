@@ -4,7 +4,10 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 import org.hyperledger.fabric.gateway.Contract;
 import org.hyperledger.fabric.gateway.Gateway;
@@ -16,6 +19,9 @@ import org.hyperledger.fabric.gateway.Wallets;
 public class ClientApp {
 	private static final String CONTRACT = "CONTRACT_NAME";
 	private static final String CHANNEL = "CHANNEL_NAME";
+	private static final long AWAIT_TIMEOUT_MINUTES = 30;
+	private static final int PAGE_SIZE = 100;
+	private static final int PREFETCH_PAGES = 2;
 
 	public static void main(final String[] args) {
 		final Gateway.Builder builder = Gateway.createBuilder();
@@ -54,14 +60,16 @@ public class ClientApp {
 
 				byte[] result;
 
-				result = contract.evaluateTransaction("queryAllOrders");
 				System.out.println("List of all orders:");
-				System.out.println(new String(result));
+				try (Stream<Order> listing = OrderPages.stream(contract, PAGE_SIZE, PREFETCH_PAGES)) {
+					listing.forEach(System.out::println);
+				}
 				System.out.println("------------------------------------");
 
-				result = contract.evaluateTransaction("queryAllOrders");
 				System.out.println("Result of 1st transaction:");
-				System.out.println(new String(result));
+				try (Stream<Order> listing = OrderPages.stream(contract, PAGE_SIZE, PREFETCH_PAGES)) {
+					listing.forEach(System.out::println);
+				}
 				System.out.println("------------------------------------");
 
 				contract.submitTransaction("cancelOrder", "1");
@@ -84,14 +92,9 @@ public class ClientApp {
 				System.out.println("------------------------------------");
 
 				System.out.println("Wait until order with id 2 is set to state SHIPPED");
-				result = contract.evaluateTransaction("queryOrder", "2");
-				Order order = Order.deserialize(result);
-				System.out.println(Order.deserialize(result));
-				while (order.getState() != Order.State.SHIPPED) {
-					System.out.println("order 2 state is:" + order.getState());
-					Thread.sleep(5000);
-					result = contract.evaluateTransaction("queryOrder", "2");
-					order = Order.deserialize(result);
+				try (OrderWatcher watcher = new OrderWatcher(network, contractName)) {
+					Order order = watcher.awaitState("2", Order.State.SHIPPED, AWAIT_TIMEOUT_MINUTES, TimeUnit.MINUTES).get();
+					System.out.println(order);
 				}
 
 				contract.submitTransaction("signArrival", "2");
@@ -100,7 +103,7 @@ public class ClientApp {
 				System.out.println(new String(result));
 				System.out.println("------------------------------------");
 			}
-		} catch (GatewayException | IOException | TimeoutException | InterruptedException e) {
+		} catch (GatewayException | IOException | TimeoutException | InterruptedException | ExecutionException e) {
 			e.printStackTrace();
 			System.exit(-1);
 		}
@@ -1,22 +1,23 @@
 package org.example;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.List;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.SerializedName;
 
-import org.bouncycastle.util.Strings;
-
 public class Order implements java.io.Serializable {
     /**
      *
      */
     private static final long serialVersionUID = -1774134125317583092L;
-    private static SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
-    private static Gson gson = new GsonBuilder().setPrettyPrinting().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
-            .create();
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+            .withZone(ZoneId.systemDefault());
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting()
+            .registerTypeAdapter(Order.class, OrderCodec.INSTANCE).create();
 
     public enum State {
         @SerializedName("0")
@@ -156,7 +157,16 @@ public class Order implements java.io.Serializable {
     }
 
     public static Order deserialize(byte[] data) {
-        return Order.gson.fromJson(Strings.fromByteArray(data), Order.class);
+        return OrderCodec.decode(data);
+    }
+
+    /**
+     * Deserialize the result of queryAllOrders to order objects
+     *
+     * @param data data to form back into the objects
+     */
+    public static List<Order> deserializeAll(byte[] data) {
+        return OrderCodec.decodeAll(data);
     }
 
     /**
@@ -173,9 +183,10 @@ public class Order implements java.io.Serializable {
         return "{" + " state='" + getState() + "'" + ", orderId='" + getOrderId() + "'" + ", productId='"
                 + getProductId() + "'" + ", quantity='" + getQuantity() + "'" + ", price='" + getPrice() + "'"
                 + ", shippingCosts='" + getShippingCosts() + "'" + ", shippingAddress='" + getShippingAddress() + "'"
-                + ", latestDeliveryDate='" + sdf.format(getLatestDeliveryDate()) + "'" + ", trackingCode='"
-                + getTrackingCode() + "'" + ", buyerSigned='" + isBuyerSigned() + "'" + ", freightSigned='"
-                + isFreightSigned() + "'" + "}";
+                + ", latestDeliveryDate='"
+                + (getLatestDeliveryDate() != null ? DATE_FORMAT.format(getLatestDeliveryDate().toInstant()) : null)
+                + "'" + ", trackingCode='" + getTrackingCode() + "'" + ", buyerSigned='" + isBuyerSigned() + "'"
+                + ", freightSigned='" + isFreightSigned() + "'" + "}";
     }
 
 }
@@ -0,0 +1,145 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+
+/**
+ * Iterates over all orders of the ledger page by page with queryOrdersWithPagination, so that the memory it needs
+ * does not grow with the number of orders.
+ *
+ * The first page is queried when the iteration starts. While a page is consumed, up to prefetch further pages are
+ * queried ahead on a background thread, each with the bookmark of the page before, so at most prefetch + 1 pages are
+ * held at any time. A page that cannot be queried fails the iteration with an IllegalStateException. Closing the
+ * iterator, or the stream it backs, ends the iteration and cancels the pages queried ahead.
+ */
+public class OrderPages implements Iterator<Order>, AutoCloseable {
+    private static final Page FIRST = new Page(Collections.emptyList(), "", false);
+    private static final Page END = new Page(Collections.emptyList(), "", true);
+
+    private final Contract contract;
+    private final int pageSize;
+    private final int prefetch;
+    private final ExecutorService fetcher;
+    private final Deque<CompletableFuture<Page>> pending = new ArrayDeque<>();
+    private CompletableFuture<Page> tail = CompletableFuture.completedFuture(FIRST);
+    private Iterator<Order> current = Collections.emptyIterator();
+    private boolean last;
+
+    /**
+     * @param contract the contract to query
+     * @param pageSize number of orders per page
+     * @param prefetch number of pages to query ahead of the one that is consumed
+     */
+    public OrderPages(Contract contract, int pageSize, int prefetch) {
+        if (pageSize < 1 || prefetch < 0) {
+            throw new IllegalArgumentException("The page size must be positive and the prefetch must not be negative.");
+        }
+        this.contract = contract;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+        this.fetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-pages");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns a sequential stream over all orders of the ledger, which should be closed if it is not consumed to the
+     * end.
+     */
+    public static Stream<Order> stream(Contract contract, int pageSize, int prefetch) {
+        OrderPages pages = new OrderPages(contract, pageSize, prefetch);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL),
+                false).onClose(pages::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (last) {
+                close();
+                return false;
+            }
+            if (pending.isEmpty()) {
+                request();
+            }
+            Page page;
+            try {
+                page = pending.poll().join();
+            } catch (CompletionException e) {
+                close();
+                throw new IllegalStateException("Could not query a page of orders.", e.getCause());
+            }
+            current = page.orders.iterator();
+            last = page.last;
+            while (!last && pending.size() < prefetch) {
+                request();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Order next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    // Queries the page after the last requested one as soon as its bookmark is known, FIRST being before the first.
+    private void request() {
+        tail = tail.thenApplyAsync(previous -> previous.last ? END : fetch(previous.bookmark), fetcher);
+        pending.add(tail);
+    }
+
+    private Page fetch(String bookmark) {
+        List<Order> orders = new ArrayList<>(pageSize);
+        try {
+            String next = OrderCodec.decodePage(contract.evaluateTransaction("queryOrdersWithPagination",
+                    Integer.toString(pageSize), bookmark), orders::add);
+            // Depending on the state database, the last page has an empty bookmark or is followed by an empty page.
+            return new Page(orders, next, next.isEmpty() || orders.isEmpty());
+        } catch (ContractException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        last = true;
+        current = Collections.emptyIterator();
+        pending.forEach(page -> page.cancel(false));
+        pending.clear();
+        fetcher.shutdownNow();
+    }
+
+    private static class Page {
+        private final List<Order> orders;
+        private final String bookmark;
+        private final boolean last;
+
+        Page(List<Order> orders, String bookmark, boolean last) {
+            this.orders = orders;
+            this.bookmark = bookmark;
+            this.last = last;
+        }
+    }
+}
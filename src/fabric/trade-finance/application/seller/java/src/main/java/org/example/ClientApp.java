@@ -1,10 +1,20 @@
 package org.example;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 import org.hyperledger.fabric.gateway.Contract;
 import org.hyperledger.fabric.gateway.Gateway;
@@ -16,6 +26,12 @@ import org.hyperledger.fabric.gateway.Wallets;
 public class ClientApp {
 	private static final String CONTRACT = "CONTRACT_NAME";
 	private static final String CHANNEL = "CHANNEL_NAME";
+	private static final String ORDERS_FILE = "ORDERS_FILE";
+	private static final String MAX_IN_FLIGHT = "MAX_IN_FLIGHT";
+	private static final int ENDORSEMENT_THREADS = 4;
+	private static final long AWAIT_TIMEOUT_MINUTES = 30;
+	private static final int PAGE_SIZE = 100;
+	private static final int PREFETCH_PAGES = 2;
 
 	public static void main(final String[] args) {
 		final Gateway.Builder builder = Gateway.createBuilder();
@@ -30,6 +46,10 @@ public class ClientApp {
 		if (envvar.containsKey(CHANNEL)) {
 			channelName = envvar.get(CHANNEL);
 		}
+		int maxInFlight = 50;
+		if (envvar.containsKey(MAX_IN_FLIGHT)) {
+			maxInFlight = Integer.parseInt(envvar.get(MAX_IN_FLIGHT));
+		}
 
 		try {
 			// A wallet stores a collection of identities
@@ -54,32 +74,33 @@ public class ClientApp {
 
 				byte[] result;
 
-				result = contract.evaluateTransaction("queryAllOrders");
 				System.out.println("List of all orders:");
-				System.out.println(new String(result));
+				try (Stream<Order> listing = OrderPages.stream(contract, PAGE_SIZE, PREFETCH_PAGES)) {
+					listing.forEach(System.out::println);
+				}
 				System.out.println("------------------------------------");
 				// if (false) {
-				contract.submitTransaction("createOrder", "1", "100", "2", "10", "2", "Karlsplatz 13, 1040 Wien",
-						"2020-09-20");
-				contract.submitTransaction("createOrder", "2", "123587", "5", "750", "4", "Ballhausplatz 2, 1010 Wien",
-						"2020-12-01");
-				contract.submitTransaction("createOrder", "3", "68754", "1", "1337", "2", "Michaelerkuppel, 1010 Wien",
-						"2020-08-15");
-
-				result = contract.evaluateTransaction("queryAllOrders");
+				List<String[]> orders;
+				if (envvar.containsKey(ORDERS_FILE)) {
+					orders = readOrders(Paths.get(envvar.get(ORDERS_FILE)));
+				} else {
+					orders = Arrays.asList(
+							new String[] { "1", "100", "2", "10", "2", "Karlsplatz 13, 1040 Wien", "2020-09-20" },
+							new String[] { "2", "123587", "5", "750", "4", "Ballhausplatz 2, 1010 Wien", "2020-12-01" },
+							new String[] { "3", "68754", "1", "1337", "2", "Michaelerkuppel, 1010 Wien", "2020-08-15" });
+				}
+				createOrders(network, contractName, orders, maxInFlight);
+
 				System.out.println("List of all orders:");
-				System.out.println(new String(result));
+				try (Stream<Order> listing = OrderPages.stream(contract, PAGE_SIZE, PREFETCH_PAGES)) {
+					listing.forEach(System.out::println);
+				}
 				System.out.println("------------------------------------");
 				// }
 				System.out.println("Wait until order with id 2 is set to state CONFIRMED");
-				result = contract.evaluateTransaction("queryOrder", "2");
-				Order order = Order.deserialize(result);
-				System.out.println(Order.deserialize(result));
-				while (order.getState() != Order.State.CONFIRMED) {
-					System.out.println("order 2 state is:" + order.getState());
-					Thread.sleep(5000);
-					result = contract.evaluateTransaction("queryOrder", "2");
-					order = Order.deserialize(result);
+				try (OrderWatcher watcher = new OrderWatcher(network, contractName)) {
+					Order order = watcher.awaitState("2", Order.State.CONFIRMED, AWAIT_TIMEOUT_MINUTES, TimeUnit.MINUTES).get();
+					System.out.println(order);
 				}
 
 				contract.submitTransaction("shipOrder", "2", "1AXCAW311");
@@ -89,10 +110,61 @@ public class ClientApp {
 				System.out.println("------------------------------------");
 
 			}
-		} catch (GatewayException | IOException | TimeoutException | InterruptedException e) {
+		} catch (GatewayException | IOException | TimeoutException | InterruptedException | ExecutionException e) {
 			e.printStackTrace();
 			System.exit(-1);
 		}
 	}
 
+	/**
+	 * Creates the orders through a submission pipeline and prints the outcome of every order once all of them are
+	 * committed or failed.
+	 *
+	 * @param orders arguments of createOrder for every order
+	 */
+	private static void createOrders(final Network network, final String contractName, final List<String[]> orders,
+			final int maxInFlight) throws InterruptedException {
+		final long start = System.nanoTime();
+		final List<CompletableFuture<byte[]>> outcomes = new ArrayList<>(orders.size());
+		try (SubmissionPipeline pipeline = new SubmissionPipeline(network, contractName, maxInFlight,
+				ENDORSEMENT_THREADS)) {
+			for (String[] order : orders) {
+				outcomes.add(pipeline.submit("createOrder", order));
+			}
+			CompletableFuture.allOf(outcomes.toArray(new CompletableFuture[0])).exceptionally(error -> null).join();
+		}
+
+		int failed = 0;
+		for (int i = 0; i < orders.size(); i++) {
+			try {
+				outcomes.get(i).join();
+				System.out.println("Created order " + orders.get(i)[0]);
+			} catch (CompletionException e) {
+				failed++;
+				System.out.println("Could not create order " + orders.get(i)[0] + ": " + e.getCause().getMessage());
+			}
+		}
+		System.out.println(String.format("Created %d of %d orders in %.1f s", orders.size() - failed, orders.size(),
+				(System.nanoTime() - start) / 1e9));
+	}
+
+	/**
+	 * Reads the orders to create from a file with one order per line and the arguments of createOrder separated by
+	 * semicolons: orderId;productId;quantity;price;shippingCosts;shippingAddress;latestDeliveryDate
+	 */
+	private static List<String[]> readOrders(final Path file) throws IOException {
+		final List<String[]> orders = new ArrayList<>();
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			final String[] order = line.split(";", -1);
+			if (order.length != 7) {
+				throw new IllegalArgumentException("Expected 7 fields separated by semicolons: " + line);
+			}
+			orders.add(order);
+		}
+		return orders;
+	}
+
 }
@@ -0,0 +1,253 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.Wallet;
+import org.hyperledger.fabric.gateway.Wallets;
+
+/**
+ * Long-running HTTP facade of the trade-finance contract for this organisation.
+ *
+ * The gateway, the network and the contract are connected once when the server starts and shared by all requests.
+ * The requests are answered by a fixed number of workers with a bounded queue, and requests that do not fit into the
+ * queue are rejected with 503. Parameters are read from the query string or from a form encoded body:
+ *
+ * <pre>
+ * GET  /orders                        queryOrdersWithPagination: pageSize (default 100), bookmark (default the first page)
+ * GET  /orders/{orderId}              queryOrder
+ * POST /orders                        createOrder: orderId, productId, quantity, price, shippingCosts, shippingAddress, latestDeliveryDate
+ * POST /orders/{orderId}/confirm      confirmOrder
+ * POST /orders/{orderId}/ship         shipOrder: trackingCode
+ * POST /orders/{orderId}/sign         signArrival
+ * POST /orders/{orderId}/cancel       cancelOrder
+ * POST /orders/{orderId}/check-date   deliveryDatePassed
+ * </pre>
+ *
+ * The orders are listed one page at a time, the bookmark of the next page is part of the response and is empty after
+ * the last page. A transaction rejected by the contract is answered with 400 and the message of the contract, and one
+ * that was not committed in time with 504.
+ */
+public class GatewayServer implements AutoCloseable {
+	private static final String CONTRACT = "CONTRACT_NAME";
+	private static final String CHANNEL = "CHANNEL_NAME";
+	private static final String PORT = "PORT";
+	private static final String WORKERS = "WORKERS";
+	private static final String QUEUE_CAPACITY = "QUEUE_CAPACITY";
+	private static final String DEFAULT_PAGE_SIZE = "100";
+
+	private final Contract contract;
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+
+	public GatewayServer(final Contract contract, final InetSocketAddress address, final int workers,
+			final int queueCapacity) throws IOException {
+		this.contract = contract;
+		this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity));
+		// The exchanges are only routed on the thread of the server, the calls to the contract run on the workers.
+		this.server = HttpServer.create(address, 0);
+		this.server.createContext("/orders", this::route);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	@Override
+	public void close() {
+		server.stop(1);
+		workers.shutdown();
+	}
+
+	private void route(final HttpExchange exchange) throws IOException {
+		final String[] path = exchange.getRequestURI().getRawPath().replaceAll("/+$", "").split("/");
+		final String method = exchange.getRequestMethod();
+		final Call call;
+		try {
+			call = resolve(path, method);
+		} catch (IllegalArgumentException e) {
+			respond(exchange, 400, e.getMessage());
+			return;
+		}
+		if (call == null) {
+			respond(exchange, 404, "Unknown endpoint: " + method + " " + exchange.getRequestURI().getPath());
+			return;
+		}
+
+		// The queries return orders as JSON, the transactions the plain result of the contract.
+		final String contentType = method.equals("GET") ? "application/json" : "text/plain";
+		try {
+			workers.execute(() -> {
+				try {
+					try {
+						respond(exchange, 200, call.apply(params(exchange)), contentType);
+					} catch (ContractException | IllegalArgumentException e) {
+						respond(exchange, 400, e.getMessage());
+					} catch (TimeoutException e) {
+						respond(exchange, 504, e.getMessage());
+					} catch (InterruptedException e) {
+						respond(exchange, 503, "The server is shutting down.");
+					} catch (RuntimeException e) {
+						respond(exchange, 500, e.toString());
+					}
+				} catch (IOException e) {
+					exchange.close();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			respond(exchange, 503, "Too many requests, try again later.");
+		}
+	}
+
+	// Returns the call of the contract for the endpoint, or null if there is no such endpoint.
+	private Call resolve(final String[] path, final String method) {
+		final Call call;
+		if (path.length == 2 && method.equals("GET")) {
+			call = params -> contract.evaluateTransaction("queryOrdersWithPagination",
+					params.getOrDefault("pageSize", DEFAULT_PAGE_SIZE), params.getOrDefault("bookmark", ""));
+		} else if (path.length == 2 && method.equals("POST")) {
+			call = params -> contract.submitTransaction("createOrder", required(params, "orderId"),
+					required(params, "productId"), required(params, "quantity"), required(params, "price"),
+					required(params, "shippingCosts"), required(params, "shippingAddress"),
+					required(params, "latestDeliveryDate"));
+		} else if (path.length == 3 && method.equals("GET")) {
+			final String orderId = decode(path[2]);
+			call = params -> contract.evaluateTransaction("queryOrder", orderId);
+		} else if (path.length == 4 && method.equals("POST")) {
+			final String orderId = decode(path[2]);
+			switch (path[3]) {
+			case "confirm":
+				call = params -> contract.submitTransaction("confirmOrder", orderId);
+				break;
+			case "ship":
+				call = params -> contract.submitTransaction("shipOrder", orderId, required(params, "trackingCode"));
+				break;
+			case "sign":
+				call = params -> contract.submitTransaction("signArrival", orderId);
+				break;
+			case "cancel":
+				call = params -> contract.submitTransaction("cancelOrder", orderId);
+				break;
+			case "check-date":
+				call = params -> contract.submitTransaction("deliveryDatePassed", orderId);
+				break;
+			default:
+				call = null;
+			}
+		} else {
+			call = null;
+		}
+		return call;
+	}
+
+	private static String required(final Map<String, String> params, final String name) {
+		final String value = params.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing parameter: " + name);
+		}
+		return value;
+	}
+
+	// Reads the parameters of the query string and of a form encoded body.
+	private static Map<String, String> params(final HttpExchange exchange) throws IOException {
+		final Map<String, String> params = new HashMap<>();
+		parse(exchange.getRequestURI().getRawQuery(), params);
+		try (InputStream body = exchange.getRequestBody()) {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+				bytes.write(buffer, 0, read);
+			}
+			parse(new String(bytes.toByteArray(), StandardCharsets.UTF_8), params);
+		}
+		return params;
+	}
+
+	private static void parse(final String encoded, final Map<String, String> params) {
+		if (encoded == null || encoded.isEmpty()) {
+			return;
+		}
+		for (String pair : encoded.split("&")) {
+			final int separator = pair.indexOf('=');
+			if (separator > 0) {
+				params.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+			}
+		}
+	}
+
+	private static String decode(final String encoded) {
+		try {
+			return URLDecoder.decode(encoded, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void respond(final HttpExchange exchange, final int status, final String message)
+			throws IOException {
+		respond(exchange, status, message.getBytes(StandardCharsets.UTF_8), "text/plain");
+	}
+
+	private static void respond(final HttpExchange exchange, final int status, final byte[] body,
+			final String contentType) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	// A call of the contract with the parameters of the request.
+	private interface Call {
+		byte[] apply(Map<String, String> params) throws ContractException, TimeoutException, InterruptedException;
+	}
+
+	public static void main(final String[] args) throws IOException {
+		final Map<String, String> envvar = System.getenv();
+		final String contractName = envvar.getOrDefault(CONTRACT, "trade-finance");
+		final String channelName = envvar.getOrDefault(CHANNEL, "mychannel");
+		final int port = Integer.parseInt(envvar.getOrDefault(PORT, "8081"));
+		final int workers = Integer.parseInt(envvar.getOrDefault(WORKERS, "16"));
+		final int queueCapacity = Integer.parseInt(envvar.getOrDefault(QUEUE_CAPACITY, "256"));
+
+		// A wallet stores a collection of identities
+		final Path walletPath = Paths.get(".", "wallet");
+		final Wallet wallet = Wallets.newFileSystemWallet(walletPath);
+		final Path connectionProfile = Paths.get("..", "..", "..", "..", "test-network", "organizations",
+				"peerOrganizations", "seller.example.com", "connection-seller.yaml");
+
+		// The gateway stays connected for the lifetime of the server.
+		final Gateway gateway = Gateway.createBuilder().identity(wallet, "user1").networkConfig(connectionProfile)
+				.discovery(false).connect();
+		final Contract contract = gateway.getNetwork(channelName).getContract(contractName);
+		final GatewayServer server = new GatewayServer(contract, new InetSocketAddress(port), workers, queueCapacity);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			gateway.close();
+		}));
+		server.start();
+		System.out.println("Serving the contract " + contractName + " of channel " + channelName + " on port " + port);
+	}
+}
@@ -0,0 +1,317 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes orders in the JSON of the chaincode, field by field instead of by reflection.
+ *
+ * The decode methods read the UTF-8 payloads of the contract directly, without copying them into a String first. The
+ * results of queryAllOrders and queryOrdersWithPagination are read one record at a time and every order is handed
+ * over before the next one is read. Dates are parsed and written with java.time, so the codec can be shared by any
+ * number of threads.
+ */
+public class OrderCodec extends TypeAdapter<Order> {
+    public static final OrderCodec INSTANCE = new OrderCodec();
+
+    private static final Order.State[] STATES = Order.State.values();
+
+    /**
+     * Decodes the result of queryOrder, or returns null for an empty payload.
+     */
+    public static Order decode(byte[] data) {
+        if (data.length == 0) {
+            return null;
+        }
+        try (JsonReader reader = new JsonReader(new Utf8Reader(data))) {
+            return INSTANCE.read(reader);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Decodes the result of queryAllOrders and hands every order to the consumer as soon as it is read.
+     */
+    public static void decodeAll(byte[] data, Consumer<Order> consumer) {
+        try (JsonReader reader = new JsonReader(new Utf8Reader(data))) {
+            readRecords(reader, consumer);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Decodes the result of queryAllOrders into a list.
+     */
+    public static List<Order> decodeAll(byte[] data) {
+        List<Order> orders = new ArrayList<>();
+        decodeAll(data, orders::add);
+        return orders;
+    }
+
+    /**
+     * Decodes a page of queryOrdersWithPagination, hands its orders to the consumer and returns the bookmark of the
+     * next page, which is empty after the last page.
+     */
+    public static String decodePage(byte[] data, Consumer<Order> consumer) {
+        String bookmark = "";
+        try (JsonReader reader = new JsonReader(new Utf8Reader(data))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("records")) {
+                    readRecords(reader, consumer);
+                } else if (name.equals("bookmark") && reader.peek() == JsonToken.STRING) {
+                    bookmark = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return bookmark;
+    }
+
+    private static void readRecords(JsonReader reader, Consumer<Order> consumer) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                // Records that the chaincode could not parse as JSON are returned as strings and skipped.
+                if (reader.nextName().equals("Record") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    consumer.accept(INSTANCE.read(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    @Override
+    public Order read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Order order = new Order();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            // Fields the chaincode left undefined or set to null keep their defaults.
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+            case "state":
+                int state = in.nextInt();
+                order.setState(state >= 0 && state < STATES.length ? STATES[state] : null);
+                break;
+            case "orderId":
+                order.setOrderId(in.nextString());
+                break;
+            case "productId":
+                order.setProductId(in.nextInt());
+                break;
+            case "quantity":
+                order.setQuantity(in.nextDouble());
+                break;
+            case "price":
+                order.setPrice(in.nextDouble());
+                break;
+            case "shippingCosts":
+                order.setShippingCosts(in.nextDouble());
+                break;
+            case "shippingAddress":
+                order.setShippingAddress(in.nextString());
+                break;
+            case "latestDeliveryDate":
+                order.setLatestDeliveryDate(parseDate(in.nextString()));
+                break;
+            case "trackingCode":
+                order.setTrackingCode(in.nextString());
+                break;
+            case "buyerSigned":
+                order.setBuyerSigned(in.nextBoolean());
+                break;
+            case "freightSigned":
+                order.setFreightSigned(in.nextBoolean());
+                break;
+            default:
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return order;
+    }
+
+    @Override
+    public void write(JsonWriter out, Order order) throws IOException {
+        if (order == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (order.getState() != null) {
+            out.name("state").value(order.getState().ordinal());
+        }
+        out.name("orderId").value(order.getOrderId());
+        out.name("productId").value(order.getProductId());
+        out.name("quantity").value(order.getQuantity());
+        out.name("price").value(order.getPrice());
+        out.name("shippingCosts").value(order.getShippingCosts());
+        out.name("shippingAddress").value(order.getShippingAddress());
+        if (order.getLatestDeliveryDate() != null) {
+            out.name("latestDeliveryDate").value(DateTimeFormatter.ISO_INSTANT.format(order.getLatestDeliveryDate().toInstant()));
+        }
+        out.name("trackingCode").value(order.getTrackingCode());
+        out.name("buyerSigned").value(order.isBuyerSigned());
+        out.name("freightSigned").value(order.isFreightSigned());
+        out.endObject();
+    }
+
+    // The chaincode writes dates as ISO 8601 in UTC, e.g. 2020-09-20T00:00:00.000Z, which is read without a parser.
+    // Any other offset or precision falls back to java.time.
+    private static Date parseDate(String date) {
+        if (date.length() == 24 && date.charAt(4) == '-' && date.charAt(7) == '-' && date.charAt(10) == 'T'
+                && date.charAt(13) == ':' && date.charAt(16) == ':' && date.charAt(19) == '.' && date.charAt(23) == 'Z') {
+            int year = digits(date, 0, 4);
+            int month = digits(date, 5, 7);
+            int day = digits(date, 8, 10);
+            int hour = digits(date, 11, 13);
+            int minute = digits(date, 14, 16);
+            int second = digits(date, 17, 19);
+            int millis = digits(date, 20, 23);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31 && hour >= 0 && hour < 24
+                    && minute >= 0 && minute < 60 && second >= 0 && second < 60 && millis >= 0) {
+                try {
+                    long epochDay = LocalDate.of(year, month, day).toEpochDay();
+                    return new Date(((epochDay * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis);
+                } catch (DateTimeException e) {
+                    throw new JsonSyntaxException("Invalid date: " + date, e);
+                }
+            }
+        }
+        try {
+            return Date.from(OffsetDateTime.parse(date, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new JsonSyntaxException("Invalid date: " + date, e);
+        }
+    }
+
+    // Returns the decimal number in the given range of the string, or -1 if it contains anything but digits.
+    private static int digits(String string, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = string.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes UTF-8 from a byte array straight into the buffer of the JsonReader. Malformed sequences are replaced
+     * with U+FFFD, like new String(data, UTF_8) does.
+     */
+    private static class Utf8Reader extends Reader {
+        private final byte[] data;
+        private int position;
+        private char pendingLowSurrogate;
+
+        Utf8Reader(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int count = 0;
+            if (pendingLowSurrogate != 0) {
+                buffer[offset + count++] = pendingLowSurrogate;
+                pendingLowSurrogate = 0;
+            }
+            while (count < length && position < data.length) {
+                int lead = data[position];
+                if (lead >= 0) {
+                    buffer[offset + count++] = (char) lead;
+                    position++;
+                    continue;
+                }
+                int codePoint = decodeSequence(lead);
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    buffer[offset + count++] = (char) codePoint;
+                } else {
+                    buffer[offset + count++] = Character.highSurrogate(codePoint);
+                    if (count < length) {
+                        buffer[offset + count++] = Character.lowSurrogate(codePoint);
+                    } else {
+                        pendingLowSurrogate = Character.lowSurrogate(codePoint);
+                    }
+                }
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        // Decodes the multi-byte sequence at the current position and moves past it.
+        private int decodeSequence(int lead) {
+            int continuations;
+            int codePoint;
+            int minimum;
+            if ((lead & 0xE0) == 0xC0) {
+                continuations = 1;
+                codePoint = lead & 0x1F;
+                minimum = 0x80;
+            } else if ((lead & 0xF0) == 0xE0) {
+                continuations = 2;
+                codePoint = lead & 0x0F;
+                minimum = 0x800;
+            } else if ((lead & 0xF8) == 0xF0) {
+                continuations = 3;
+                codePoint = lead & 0x07;
+                minimum = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+            } else {
+                position++;
+                return 0xFFFD;
+            }
+            position++;
+            for (int i = 0; i < continuations; i++) {
+                if (position >= data.length || (data[position] & 0xC0) != 0x80) {
+                    return 0xFFFD;
+                }
+                codePoint = (codePoint << 6) | (data[position++] & 0x3F);
+            }
+            boolean valid = codePoint >= minimum && codePoint <= Character.MAX_CODE_POINT
+                    && (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE);
+            return valid ? codePoint : 0xFFFD;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.example;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.TxReadWriteSetInfo;
+
+/**
+ * Waits for orders to reach a state, driven by the blocks the peer commits instead of polling queryOrder.
+ *
+ * A single block listener on the network serves all waits. It decodes the orders that the valid transactions of the
+ * contract write, but only those that are waited for, and completes the waits whose order reached the target state.
+ * A wait fails if its order reaches a final state other than the target one or when its timeout passes, and is
+ * cancelled by cancelling its future or by closing the watcher.
+ */
+public class OrderWatcher implements AutoCloseable {
+    private final Network network;
+    private final Contract contract;
+    private final String contractName;
+    private final Map<String, List<Wait>> waits = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timeouts;
+    private final Consumer<BlockEvent> listener;
+
+    public OrderWatcher(Network network, String contractName) {
+        this.network = network;
+        this.contract = network.getContract(contractName);
+        this.contractName = contractName;
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-watcher-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.listener = network.addBlockListener(this::onBlock);
+    }
+
+    /**
+     * Returns a future that completes with the order once it is in the given state, which may already be the case.
+     *
+     * @param orderId ID of the order to wait for, which may not exist yet
+     * @param state   state to wait for
+     * @param timeout time after which the future fails with a TimeoutException
+     * @param unit    unit of the timeout
+     */
+    public CompletableFuture<Order> awaitState(String orderId, Order.State state, long timeout, TimeUnit unit) {
+        Wait wait = new Wait(orderId, state);
+        waits.compute(orderId, (id, waiting) -> {
+            List<Wait> list = waiting != null ? waiting : new CopyOnWriteArrayList<>();
+            list.add(wait);
+            return list;
+        });
+        ScheduledFuture<?> timeoutTask = timeouts.schedule(() -> wait.future.completeExceptionally(new TimeoutException(
+                "Order " + orderId + " did not reach state " + state + " within " + timeout + " " + unit + ".")), timeout, unit);
+        wait.future.whenComplete((order, error) -> {
+            timeoutTask.cancel(false);
+            waits.computeIfPresent(orderId, (id, waiting) -> {
+                waiting.remove(wait);
+                return waiting.isEmpty() ? null : waiting;
+            });
+        });
+
+        // The listener only sees the blocks from now on, so the order may already be in the state.
+        try {
+            wait.offer(Order.deserialize(contract.evaluateTransaction("queryOrder", orderId)));
+        } catch (ContractException e) {
+            // The order does not exist yet, its creation will be seen by the listener.
+        }
+        return wait.future;
+    }
+
+    private void onBlock(BlockEvent block) {
+        if (waits.isEmpty()) {
+            return;
+        }
+        for (BlockEvent.TransactionEvent transaction : block.getTransactionEvents()) {
+            if (!transaction.isValid()) {
+                continue;
+            }
+            for (BlockInfo.TransactionEnvelopeInfo.TransactionActionInfo action : transaction.getTransactionActionInfos()) {
+                TxReadWriteSetInfo readWriteSet = action.getTxReadWriteSet();
+                if (readWriteSet == null) {
+                    continue;
+                }
+                for (TxReadWriteSetInfo.NsRwsetInfo namespace : readWriteSet.getNsRwsetInfos()) {
+                    if (namespace.getNamespace().equals(contractName)) {
+                        onWrites(namespace);
+                    }
+                }
+            }
+        }
+    }
+
+    private void onWrites(TxReadWriteSetInfo.NsRwsetInfo namespace) {
+        try {
+            for (KvRwset.KVWrite write : namespace.getRwset().getWritesList()) {
+                List<Wait> waiting = waits.get(write.getKey());
+                if (waiting != null && !write.getIsDelete()) {
+                    Order order = Order.deserialize(write.getValue().toByteArray());
+                    waiting.forEach(wait -> wait.offer(order));
+                }
+            }
+        } catch (InvalidProtocolBufferException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops listening and cancels the waits that are still pending.
+     */
+    @Override
+    public void close() {
+        network.removeBlockListener(listener);
+        waits.values().forEach(waiting -> waiting.forEach(wait -> wait.future.cancel(false)));
+        timeouts.shutdownNow();
+    }
+
+    private static boolean isFinal(Order.State state) {
+        return state == Order.State.DELIVERED || state == Order.State.CANCELLED || state == Order.State.PASSED;
+    }
+
+    private static class Wait {
+        private final String orderId;
+        private final Order.State state;
+        private final CompletableFuture<Order> future = new CompletableFuture<>();
+
+        Wait(String orderId, Order.State state) {
+            this.orderId = orderId;
+            this.state = state;
+        }
+
+        void offer(Order order) {
+            if (order.getState() == state) {
+                future.complete(order);
+            } else if (isFinal(order.getState())) {
+                future.completeExceptionally(new IllegalStateException(
+                        "Order " + orderId + " reached the final state " + order.getState() + " instead of " + state + "."));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.ChaincodeResponse;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.SDKUtils;
+import org.hyperledger.fabric.sdk.TransactionProposalRequest;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+
+/**
+ * Submits transactions without waiting for the commit of one before the next starts.
+ *
+ * Up to maxInFlight transactions are between their endorsement and their commit at the same time, and submit blocks
+ * while the pipeline is full. The proposals are endorsed in parallel by a pool of endorsement threads. Once endorsed,
+ * a transaction is sent to the orderer and its future completes with the payload of the chaincode when the peers
+ * report the commit, so no thread waits for the orderer's batch timeout. A transaction that fails the endorsement or
+ * is invalidated by the peers completes its future with a ContractException.
+ */
+public class SubmissionPipeline implements AutoCloseable {
+    private final Channel channel;
+    private final String contractName;
+    private final Semaphore inFlight;
+    private final ExecutorService endorsers;
+
+    public SubmissionPipeline(Network network, String contractName, int maxInFlight, int endorsementThreads) {
+        if (maxInFlight < 1 || endorsementThreads < 1) {
+            throw new IllegalArgumentException("The pipeline needs at least one transaction in flight and one endorsement thread.");
+        }
+        this.channel = network.getChannel();
+        this.contractName = contractName;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.endorsers = Executors.newFixedThreadPool(endorsementThreads);
+    }
+
+    /**
+     * Submits a transaction and returns a future of its result, blocking while maxInFlight transactions are pending.
+     *
+     * @param name name of the transaction function
+     * @param args arguments of the transaction function
+     */
+    public CompletableFuture<byte[]> submit(String name, String... args) throws InterruptedException {
+        inFlight.acquire();
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        result.whenComplete((payload, error) -> inFlight.release());
+        try {
+            endorsers.execute(() -> {
+                try {
+                    Collection<ProposalResponse> responses = endorse(name, args);
+                    byte[] payload = responses.iterator().next().getChaincodeActionResponsePayload();
+                    channel.sendTransaction(responses).whenComplete((event, error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else if (!event.isValid()) {
+                            result.completeExceptionally(new ContractException("Transaction " + event.getTransactionID()
+                                    + " was invalidated with code " + event.getValidationCode() + ".", responses));
+                        } else {
+                            result.complete(payload);
+                        }
+                    });
+                } catch (ContractException | ProposalException | InvalidArgumentException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private Collection<ProposalResponse> endorse(String name, String... args)
+            throws ContractException, ProposalException, InvalidArgumentException {
+        // Without a user of its own, the request is signed by the identity of the gateway.
+        TransactionProposalRequest request = TransactionProposalRequest.newInstance(null);
+        request.setChaincodeName(contractName);
+        request.setFcn(name);
+        request.setArgs(args);
+        Collection<Peer> peers = channel.getPeers(EnumSet.of(Peer.PeerRole.ENDORSING_PEER));
+        Collection<ProposalResponse> responses = channel.sendTransactionProposal(request, peers);
+        for (ProposalResponse response : responses) {
+            if (response.getStatus() != ChaincodeResponse.Status.SUCCESS || !response.isVerified()) {
+                throw new ContractException(response.getMessage(), responses);
+            }
+        }
+        if (SDKUtils.getProposalConsistencySets(responses).size() != 1) {
+            throw new ContractException("The endorsements of " + name + " do not match.", responses);
+        }
+        return responses;
+    }
+
+    /**
+     * Waits until the pending transactions are endorsed and stops the endorsement threads. The commits of the
+     * transactions still complete their futures afterwards.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        endorsers.shutdown();
+        endorsers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+SPDX-License-Identifier: Apache-2.0
+*/
+
+package org.example;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the decoding of query results by reflection from a String, as the client did before, with OrderCodec.
+ *
+ * Run it after mvn test-compile with:
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     org.openjdk.jmh.Main OrderCodecBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderCodecBenchmark {
+	private static final Gson LEGACY = new GsonBuilder().setPrettyPrinting()
+			.setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").create();
+	private static final Type LEGACY_RECORDS = new TypeToken<List<LegacyRecord>>() {
+	}.getType();
+
+	private byte[] order;
+
+	@Setup
+	public void setUp() {
+		order = order(1).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Order decodeLegacy() {
+		return LEGACY.fromJson(new String(order, StandardCharsets.UTF_8), Order.class);
+	}
+
+	@Benchmark
+	public Order decodeCodec() {
+		return OrderCodec.decode(order);
+	}
+
+	@Benchmark
+	public void decodeAllLegacy(final AllOrders all, final Blackhole blackhole) {
+		final List<LegacyRecord> records = LEGACY.fromJson(new String(all.data, StandardCharsets.UTF_8), LEGACY_RECORDS);
+		for (LegacyRecord record : records) {
+			blackhole.consume(record.record);
+		}
+	}
+
+	@Benchmark
+	public void decodeAllCodec(final AllOrders all, final Blackhole blackhole) {
+		OrderCodec.decodeAll(all.data, blackhole::consume);
+	}
+
+	// The result of queryAllOrders for a ledger with the given number of orders.
+	@State(Scope.Benchmark)
+	public static class AllOrders {
+		@Param({ "10", "1000" })
+		public int count;
+
+		private byte[] data;
+
+		@Setup
+		public void setUp() {
+			final StringBuilder json = new StringBuilder("[");
+			for (int i = 1; i <= count; i++) {
+				json.append(i > 1 ? "," : "").append("{\"Key\":\"").append(i).append("\",\"Record\":")
+						.append(order(i)).append('}');
+			}
+			data = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	private static class LegacyRecord {
+		@SerializedName("Key")
+		String key;
+		@SerializedName("Record")
+		Order record;
+	}
+
+	// A shipped order as the chaincode stores it.
+	private static String order(final int orderId) {
+		return "{\"docType\":\"order\",\"state\":2,\"orderId\":\"" + orderId + "\",\"productId\":123587,"
+				+ "\"quantity\":5,\"price\":750,\"shippingCosts\":4,\"shippingAddress\":\"Mariahilfer Stra\u00dfe 1, 1060 Wien\","
+				+ "\"latestDeliveryDate\":\"2020-12-01T00:00:00.000Z\",\"trackingCode\":\"1AXCAW311\"}";
+	}
+}
@@ -0,0 +1,87 @@
+/*
+SPDX-License-Identifier: Apache-2.0
+*/
+
+package org.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.Test;
+
+public class OrderCodecTest {
+	// An order as the chaincode stores it, with the fields it left undefined omitted.
+	private static final String CREATED = "{\"docType\":\"order\",\"state\":0,\"orderId\":\"1\",\"productId\":100,"
+			+ "\"quantity\":2,\"price\":10,\"shippingCosts\":2,\"shippingAddress\":\"Karlsplatz 13, 1040 Wien\","
+			+ "\"latestDeliveryDate\":\"2020-09-20T00:00:00.000Z\"}";
+	private static final String SHIPPED = "{\"docType\":\"order\",\"state\":2,\"orderId\":\"2\",\"productId\":123587,"
+			+ "\"quantity\":5.5,\"price\":750,\"shippingCosts\":4,\"shippingAddress\":\"Mariahilfer Stra\u00dfe 1 \ud83d\udce6, 1060 Wien\","
+			+ "\"latestDeliveryDate\":\"2020-12-01T00:00:00.000Z\",\"trackingCode\":\"1AXCAW311\",\"buyerSigned\":true}";
+
+	@Test
+	public void testDecode() {
+		final Order order = OrderCodec.decode(CREATED.getBytes(StandardCharsets.UTF_8));
+		assertThat(order.getState()).isEqualTo(Order.State.CREATED);
+		assertThat(order.getOrderId()).isEqualTo("1");
+		assertThat(order.getProductId()).isEqualTo(100);
+		assertThat(order.getQuantity()).isEqualTo(2.0);
+		assertThat(order.getShippingAddress()).isEqualTo("Karlsplatz 13, 1040 Wien");
+		assertThat(order.getLatestDeliveryDate().toInstant().toString()).isEqualTo("2020-09-20T00:00:00Z");
+		assertThat(order.getTrackingCode()).isNull();
+		assertThat(order.isBuyerSigned()).isFalse();
+	}
+
+	@Test
+	public void testDecodeMatchesGson() {
+		final byte[] data = SHIPPED.getBytes(StandardCharsets.UTF_8);
+		final Order expected = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").create()
+				.fromJson(new String(data, StandardCharsets.UTF_8), Order.class);
+		assertThat(OrderCodec.decode(data).toString()).isEqualTo(expected.toString());
+	}
+
+	@Test
+	public void testDecodeDates() {
+		assertThat(date("2020-02-29T23:59:58.123Z")).isEqualTo("2020-02-29T23:59:58.123Z");
+		assertThat(date("1969-12-31T00:00:00.000Z")).isEqualTo("1969-12-31T00:00:00Z");
+		assertThat(date("2020-09-20T02:00:00.000+02:00")).isEqualTo("2020-09-20T00:00:00Z");
+		assertThat(date("2020-09-20T00:00:00Z")).isEqualTo("2020-09-20T00:00:00Z");
+		assertThatThrownBy(() -> date("2020-02-30T00:00:00.000Z")).isInstanceOf(JsonSyntaxException.class);
+		assertThatThrownBy(() -> date("2020-09-20")).isInstanceOf(JsonSyntaxException.class);
+	}
+
+	private static String date(final String date) {
+		final String json = "{\"latestDeliveryDate\":\"" + date + "\"}";
+		return OrderCodec.decode(json.getBytes(StandardCharsets.UTF_8)).getLatestDeliveryDate().toInstant().toString();
+	}
+
+	@Test
+	public void testDecodeAll() {
+		final String allOrders = "[{\"Key\":\"1\",\"Record\":" + CREATED + "},{\"Key\":\"x\",\"Record\":\"not json\"},"
+				+ "{\"Key\":\"2\",\"Record\":" + SHIPPED + "}]";
+		final List<String> orderIds = new ArrayList<>();
+		OrderCodec.decodeAll(allOrders.getBytes(StandardCharsets.UTF_8), order -> orderIds.add(order.getOrderId()));
+		assertThat(orderIds).containsExactly("1", "2");
+		assertThat(OrderCodec.decodeAll("[]".getBytes(StandardCharsets.UTF_8))).isEmpty();
+	}
+
+	@Test
+	public void testSerializeRoundTrip() {
+		final Order order = OrderCodec.decode(SHIPPED.getBytes(StandardCharsets.UTF_8));
+		final Order decoded = OrderCodec.decode(Order.serialize(order).getBytes(StandardCharsets.UTF_8));
+		assertThat(decoded.toString()).isEqualTo(order.toString());
+	}
+
+	@Test
+	public void testMalformedUtf8IsReplaced() {
+		final byte[] data = "{\"orderId\":\"a?b\"}".getBytes(StandardCharsets.UTF_8);
+		data[13] = (byte) 0xC3;
+		assertThat(OrderCodec.decode(data).getOrderId()).isEqualTo(new String(data, StandardCharsets.UTF_8).substring(12, 15));
+	}
+}
@@ -0,0 +1,97 @@
+/*
+SPDX-License-Identifier: Apache-2.0
+*/
+
+package org.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.junit.Test;
+
+public class OrderPagesTest {
+	private final NavigableMap<String, String> ledger = new TreeMap<>();
+	private final AtomicInteger queries = new AtomicInteger();
+	private String failingBookmark;
+
+	public OrderPagesTest() {
+		for (int i = 0; i < 95; i++) {
+			final String orderId = String.format("%03d", i);
+			ledger.put(orderId, "{\"docType\":\"order\",\"state\":0,\"orderId\":\"" + orderId + "\"}");
+		}
+	}
+
+	@Test
+	public void testStreamsAllOrdersInKeyOrder() {
+		try (Stream<Order> orders = OrderPages.stream(contract(), 10, 2)) {
+			assertThat(orders.map(Order::getOrderId).collect(Collectors.toList()))
+					.containsExactlyElementsOf(ledger.keySet());
+		}
+		assertThat(queries.get()).isEqualTo(10);
+	}
+
+	@Test
+	public void testPrefetchIsBounded() {
+		try (OrderPages pages = new OrderPages(contract(), 10, 2)) {
+			for (int i = 0; i < 25; i++) {
+				pages.next();
+			}
+			// The third page is consumed, at most two more are queried ahead of it.
+			assertThat(queries.get()).isBetween(3, 5);
+		}
+	}
+
+	@Test
+	public void testStopsAtEmptyPage() {
+		ledger.clear();
+		try (OrderPages pages = new OrderPages(contract(), 10, 2)) {
+			assertThat(pages.hasNext()).isFalse();
+		}
+		assertThat(queries.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void testFailedPageFailsIteration() {
+		failingBookmark = "010";
+		final OrderPages pages = new OrderPages(contract(), 10, 0);
+		for (int i = 0; i < 10; i++) {
+			pages.next();
+		}
+		assertThatThrownBy(pages::hasNext).isInstanceOf(IllegalStateException.class)
+				.hasCauseInstanceOf(ContractException.class);
+		assertThat(pages.hasNext()).isFalse();
+	}
+
+	// A contract that answers queryOrdersWithPagination from the ledger like a peer with LevelDB.
+	private Contract contract() {
+		return (Contract) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Contract.class },
+				(proxy, method, args) -> {
+					final String[] arguments = (String[]) args[1];
+					assertThat(method.getName()).isEqualTo("evaluateTransaction");
+					assertThat(args[0]).isEqualTo("queryOrdersWithPagination");
+					queries.incrementAndGet();
+					if (arguments[1].equals(failingBookmark)) {
+						throw new ContractException("The peer is not available.");
+					}
+					final int pageSize = Integer.parseInt(arguments[0]);
+					final List<String> keys = ledger.tailMap(arguments[1], true).keySet().stream().limit(pageSize + 1)
+							.collect(Collectors.toList());
+					final String bookmark = keys.size() > pageSize ? keys.remove(pageSize) : "";
+					final String records = keys.stream().map(key -> "{\"Key\":\"" + key + "\",\"Record\":" + ledger.get(key) + "}")
+							.collect(Collectors.joining(","));
+					return ("{\"records\":[" + records + "],\"fetchedRecordsCount\":" + keys.size() + ",\"bookmark\":\""
+							+ bookmark + "\"}").getBytes(StandardCharsets.UTF_8);
+				});
+	}
+}
@@ -28,6 +28,18 @@ export class TradeFinance extends Contract {
         return order;
     }
 
+    private toRecord(key: string, value: Uint8Array) {
+        const strValue = Buffer.from(value).toString("utf8");
+        let record;
+        try {
+            record = JSON.parse(strValue);
+        } catch (err) {
+            console.log(err);
+            record = strValue;
+        }
+        return { Key: key, Record: record };
+    }
+
     public async queryOrder(ctx: Context, _orderId: string): Promise<string> {
         const order = await this.getOrder(ctx, _orderId);
         //console.log(order.toString());
@@ -39,20 +51,33 @@ export class TradeFinance extends Contract {
         const endKey = "";
         const allResults = [];
         for await (const { key, value } of ctx.stub.getStateByRange(startKey, endKey)) {
-            const strValue = Buffer.from(value).toString("utf8");
-            let record;
-            try {
-                record = JSON.parse(strValue);
-            } catch (err) {
-                console.log(err);
-                record = strValue;
-            }
-            allResults.push({ Key: key, Record: record });
+            allResults.push(this.toRecord(key, value));
         }
         //console.info(allResults);
         return JSON.stringify(allResults);
     }
 
+    // Returns one page of at most _pageSize orders, starting at the _bookmark returned with the previous page or at
+    // the first order for an empty bookmark. The result has the records in the format of queryAllOrders, the number
+    // of records and the bookmark of the next page, which is empty after the last page.
+    // Paginated queries are only allowed in evaluated transactions, the peers reject them in submitted ones.
+    public async queryOrdersWithPagination(ctx: Context, _pageSize: number, _bookmark: string): Promise<string> {
+        const pageSize = Number(_pageSize);
+        if (!Number.isInteger(pageSize) || pageSize < 1) {
+            throw new Error("The page size must be a positive integer.");
+        }
+        const { iterator, metadata } = await ctx.stub.getStateByRangeWithPagination("", "", pageSize, _bookmark || "");
+        const records = [];
+        try {
+            for (let result = await iterator.next(); !result.done; result = await iterator.next()) {
+                records.push(this.toRecord(result.value.key, result.value.value));
+            }
+        } finally {
+            await iterator.close();
+        }
+        return JSON.stringify({ records: records, fetchedRecordsCount: metadata.fetchedRecordsCount, bookmark: metadata.bookmark });
+    }
+
     public async createOrder(ctx: Context,
         _orderId: string,
         _productId: number,